@@ -0,0 +1,124 @@
+package android.os;
+
+/**
+ * jvm stand-in for the android handler. unlike android, a handler created on a thread without a
+ * looper binds to the main looper, so the benchmarks can create the library classes anywhere
+ */
+public class Handler {
+
+    public interface Callback {
+        public boolean handleMessage(Message msg);
+    }
+
+    private final Looper mLooper;
+    private final MessageQueue mQueue;
+    private final Callback mCallback;
+
+    public Handler() {
+        this(null, null);
+    }
+
+    public Handler(Callback callback) {
+        this(null, callback);
+    }
+
+    public Handler(Looper looper) {
+        this(looper, null);
+    }
+
+    public Handler(Looper looper, Callback callback) {
+        if (looper == null) {
+            looper = Looper.myLooper();
+        }
+        if (looper == null) {
+            looper = Looper.getMainLooper();
+        }
+        mLooper = looper;
+        mQueue = looper.mQueue;
+        mCallback = callback;
+    }
+
+    public void handleMessage(Message msg) {
+    }
+
+    public void dispatchMessage(Message msg) {
+        if (msg.callback != null) {
+            msg.callback.run();
+        } else {
+            if (mCallback != null && mCallback.handleMessage(msg)) {
+                return;
+            }
+            handleMessage(msg);
+        }
+    }
+
+    public final Looper getLooper() {
+        return mLooper;
+    }
+
+    public final Message obtainMessage() {
+        return Message.obtain(this, 0, null);
+    }
+
+    public final Message obtainMessage(int what) {
+        return Message.obtain(this, what, null);
+    }
+
+    public final Message obtainMessage(int what, Object obj) {
+        return Message.obtain(this, what, obj);
+    }
+
+    public final boolean post(Runnable r) {
+        return postDelayed(r, 0);
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        final Message msg = Message.obtain(this, 0, null);
+        msg.callback = r;
+        return sendMessageDelayed(msg, delayMillis);
+    }
+
+    public final boolean sendMessage(Message msg) {
+        return sendMessageDelayed(msg, 0);
+    }
+
+    public final boolean sendEmptyMessage(int what) {
+        return sendEmptyMessageDelayed(what, 0);
+    }
+
+    public final boolean sendEmptyMessageDelayed(int what, long delayMillis) {
+        return sendMessageDelayed(obtainMessage(what), delayMillis);
+    }
+
+    public final boolean sendMessageDelayed(Message msg, long delayMillis) {
+        if (delayMillis < 0) {
+            delayMillis = 0;
+        }
+        return sendMessageAtTime(msg, SystemClock.uptimeMillis() + delayMillis);
+    }
+
+    public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+        msg.target = this;
+        return mQueue.enqueueMessage(msg, uptimeMillis);
+    }
+
+    public final boolean hasMessages(int what) {
+        return mQueue.hasMessages(this, what, null);
+    }
+
+    public final boolean hasMessages(int what, Object object) {
+        return mQueue.hasMessages(this, what, object);
+    }
+
+    public final void removeMessages(int what) {
+        mQueue.removeMessages(this, what, null);
+    }
+
+    public final void removeMessages(int what, Object object) {
+        mQueue.removeMessages(this, what, object);
+    }
+
+    public final void removeCallbacksAndMessages(Object token) {
+        mQueue.removeCallbacksAndMessages(this, token);
+    }
+}
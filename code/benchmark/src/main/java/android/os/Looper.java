@@ -0,0 +1,65 @@
+package android.os;
+
+/**
+ * jvm stand-in for the android looper. nothing loops by itself: the thread which owns the looper
+ * (the benchmark thread for the main looper) delivers the pending messages with {@link #drain()}
+ */
+public final class Looper {
+
+    private static final Looper sMainLooper = new Looper(Thread.currentThread());
+
+    private static final ThreadLocal<Looper> sThreadLocal = new ThreadLocal<>();
+
+    final MessageQueue mQueue = new MessageQueue();
+
+    private final Thread mThread;
+
+    private Looper(Thread thread) {
+        mThread = thread;
+    }
+
+    public static void prepare() {
+        if (sThreadLocal.get() != null) {
+            throw new RuntimeException("Only one Looper may be created per thread");
+        }
+        sThreadLocal.set(new Looper(Thread.currentThread()));
+    }
+
+    public static Looper myLooper() {
+        return sThreadLocal.get();
+    }
+
+    public static Looper getMainLooper() {
+        return sMainLooper;
+    }
+
+    public Thread getThread() {
+        return mThread;
+    }
+
+    public MessageQueue getQueue() {
+        return mQueue;
+    }
+
+    /**
+     * deliver every message which is due now, on the calling thread
+     *
+     * @return the delivered message count
+     */
+    public int drain() {
+        int count = 0;
+        Message msg;
+        while ((msg = mQueue.next(SystemClock.uptimeMillis())) != null) {
+            msg.target.dispatchMessage(msg);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the pending message count, due or not
+     */
+    public int pendingCount() {
+        return mQueue.size();
+    }
+}
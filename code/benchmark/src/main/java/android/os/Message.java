@@ -0,0 +1,52 @@
+package android.os;
+
+/**
+ * jvm stand-in for the android message, only the fields the library uses
+ */
+public final class Message {
+
+    public int what;
+    public int arg1;
+    public int arg2;
+    public Object obj;
+
+    Handler target;
+    Runnable callback;
+    long when;
+    long seq;
+
+    public static Message obtain() {
+        return new Message();
+    }
+
+    public static Message obtain(Handler h, int what, Object obj) {
+        final Message m = new Message();
+        m.target = h;
+        m.what = what;
+        m.obj = obj;
+        return m;
+    }
+
+    public void setTarget(Handler target) {
+        this.target = target;
+    }
+
+    public Handler getTarget() {
+        return target;
+    }
+
+    public Runnable getCallback() {
+        return callback;
+    }
+
+    public long getWhen() {
+        return when;
+    }
+
+    public void sendToTarget() {
+        target.sendMessage(this);
+    }
+
+    public void recycle() {
+    }
+}
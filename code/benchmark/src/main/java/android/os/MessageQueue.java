@@ -0,0 +1,70 @@
+package android.os;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * jvm stand-in for the android message queue, ordered by the delivery time
+ */
+public final class MessageQueue {
+
+    private final PriorityQueue<Message> mMessages = new PriorityQueue<>(64, new Comparator<Message>() {
+        @Override
+        public int compare(Message lhs, Message rhs) {
+            if (lhs.when != rhs.when) {
+                return lhs.when < rhs.when ? -1 : 1;
+            }
+            return lhs.seq < rhs.seq ? -1 : (lhs.seq == rhs.seq ? 0 : 1);
+        }
+    });
+
+    private long mSeq;
+
+    synchronized boolean enqueueMessage(Message msg, long when) {
+        msg.when = when;
+        msg.seq = mSeq++;
+        return mMessages.offer(msg);
+    }
+
+    synchronized Message next(long now) {
+        final Message msg = mMessages.peek();
+        if (msg != null && msg.when <= now) {
+            return mMessages.poll();
+        }
+        return null;
+    }
+
+    synchronized boolean hasMessages(Handler h, int what, Object object) {
+        for (Message msg : mMessages) {
+            if (msg.target == h && msg.what == what && (object == null || msg.obj == object) && msg.callback == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void removeMessages(Handler h, int what, Object object) {
+        final Iterator<Message> iterator = mMessages.iterator();
+        while (iterator.hasNext()) {
+            final Message msg = iterator.next();
+            if (msg.target == h && msg.what == what && (object == null || msg.obj == object) && msg.callback == null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void removeCallbacksAndMessages(Handler h, Object object) {
+        final Iterator<Message> iterator = mMessages.iterator();
+        while (iterator.hasNext()) {
+            final Message msg = iterator.next();
+            if (msg.target == h && (object == null || msg.obj == object)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return mMessages.size();
+    }
+}
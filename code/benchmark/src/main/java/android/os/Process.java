@@ -0,0 +1,27 @@
+package android.os;
+
+/**
+ * jvm stand-in for the android process, the thread priority is ignored
+ */
+public class Process {
+
+    public static final int THREAD_PRIORITY_DEFAULT = 0;
+    public static final int THREAD_PRIORITY_LOWEST = 19;
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+    public static final int THREAD_PRIORITY_FOREGROUND = -2;
+    public static final int THREAD_PRIORITY_DISPLAY = -4;
+    public static final int THREAD_PRIORITY_URGENT_DISPLAY = -8;
+    public static final int THREAD_PRIORITY_MORE_FAVORABLE = -1;
+    public static final int THREAD_PRIORITY_LESS_FAVORABLE = +1;
+
+    public static void setThreadPriority(int priority) {
+    }
+
+    public static int myPid() {
+        return 1;
+    }
+
+    public static int myTid() {
+        return (int) Thread.currentThread().getId();
+    }
+}
@@ -0,0 +1,24 @@
+package android.os;
+
+/**
+ * jvm stand-in for the android system clock
+ */
+public final class SystemClock {
+
+    private static final long START_NANOS = System.nanoTime();
+
+    private SystemClock() {
+    }
+
+    public static long uptimeMillis() {
+        return (System.nanoTime() - START_NANOS) / 1000000L;
+    }
+
+    public static long elapsedRealtime() {
+        return uptimeMillis();
+    }
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime() - START_NANOS;
+    }
+}
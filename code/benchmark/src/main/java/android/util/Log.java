@@ -0,0 +1,45 @@
+package android.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * jvm stand-in for the android log. the console output is swallowed, so the benchmarks measure
+ * the library and not the terminal
+ */
+public final class Log {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    private static volatile int sSink;
+
+    private Log() {
+    }
+
+    public static int println(int priority, String tag, String msg) {
+        // keep the call from being optimized away
+        final int length = (tag == null ? 0 : tag.length()) + (msg == null ? 0 : msg.length());
+        sSink += length;
+        return length;
+    }
+
+    public static boolean isLoggable(String tag, int level) {
+        return level >= INFO;
+    }
+
+    public static String getStackTraceString(Throwable tr) {
+        if (tr == null) {
+            return "";
+        }
+        final StringWriter sw = new StringWriter();
+        final PrintWriter pw = new PrintWriter(sw);
+        tr.printStackTrace(pw);
+        pw.flush();
+        return sw.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * jvm stand-in for the android sparse array: sorted int keys, binary search lookup
+ */
+public class SparseArray<E> implements Cloneable {
+
+    private int[] mKeys;
+    private Object[] mValues;
+    private int mSize;
+
+    public SparseArray() {
+        this(10);
+    }
+
+    public SparseArray(int initialCapacity) {
+        mKeys = new int[Math.max(initialCapacity, 1)];
+        mValues = new Object[mKeys.length];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public SparseArray<E> clone() {
+        try {
+            final SparseArray<E> clone = (SparseArray<E>) super.clone();
+            clone.mKeys = mKeys.clone();
+            clone.mValues = mValues.clone();
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public E get(int key) {
+        return get(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int key, E valueIfKeyNotFound) {
+        final int i = Arrays.binarySearch(mKeys, 0, mSize, key);
+        return i < 0 ? valueIfKeyNotFound : (E) mValues[i];
+    }
+
+    public void delete(int key) {
+        final int i = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (i >= 0) {
+            removeAt(i);
+        }
+    }
+
+    public void remove(int key) {
+        delete(key);
+    }
+
+    public void removeAt(int index) {
+        System.arraycopy(mKeys, index + 1, mKeys, index, mSize - index - 1);
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        mValues[mSize] = null;
+    }
+
+    public void put(int key, E value) {
+        int i = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (i >= 0) {
+            mValues[i] = value;
+            return;
+        }
+        i = ~i;
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+            mValues = Arrays.copyOf(mValues, mSize * 2);
+        }
+        System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+        System.arraycopy(mValues, i, mValues, i + 1, mSize - i);
+        mKeys[i] = key;
+        mValues[i] = value;
+        mSize++;
+    }
+
+    public void append(int key, E value) {
+        put(key, value);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int keyAt(int index) {
+        return mKeys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E valueAt(int index) {
+        return (E) mValues[index];
+    }
+
+    public void setValueAt(int index, E value) {
+        mValues[index] = value;
+    }
+
+    public int indexOfKey(int key) {
+        return Arrays.binarySearch(mKeys, 0, mSize, key);
+    }
+
+    public void clear() {
+        Arrays.fill(mValues, 0, mSize, null);
+        mSize = 0;
+    }
+}
@@ -0,0 +1,125 @@
+package com.pafc.benchmark.ipc;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pafc.library.ipc.SPProtocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * encode and decode of the shared preference protocol, from a single key put to a get all of a
+ * large preference file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SPProtocolBenchmark {
+
+    @Param({"1", "16", "128"})
+    public int packets;
+
+    private SPProtocol.Request mRequest;
+
+    private SPProtocol.Response mResponse;
+
+    private byte[] mRequestBytes;
+
+    private byte[] mResponseBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mRequest = buildRequest();
+        mResponse = buildResponse();
+        mRequestBytes = mRequest.toByteArray();
+        mResponseBytes = mResponse.toByteArray();
+    }
+
+    private SPProtocol.Packet packet(int i) {
+        final SPProtocol.Packet.Builder builder = SPProtocol.Packet.newBuilder().setKey("preference_key_" + i);
+        switch (i % 5) {
+            case 0:
+                return builder.setTye(SPProtocol.Packet.ValueType.INT).setValueInt(i).build();
+            case 1:
+                return builder.setTye(SPProtocol.Packet.ValueType.STRING).setValueString("value of the preference " + i).build();
+            case 2:
+                return builder.setTye(SPProtocol.Packet.ValueType.LONG).setValueLong(System.currentTimeMillis() + i).build();
+            case 3:
+                return builder.setTye(SPProtocol.Packet.ValueType.FLOAT).setValueFloat(i / 3f).build();
+            default:
+                return builder.setTye(SPProtocol.Packet.ValueType.BOOLEAN).setValueBool(i % 2 == 0).build();
+        }
+    }
+
+    private SPProtocol.Request buildRequest() {
+        final SPProtocol.RequestBody.Builder body = SPProtocol.RequestBody.newBuilder();
+        for (int i = 0; i < packets; i++) {
+            body.addPacketList(packet(i));
+        }
+        return SPProtocol.Request.newBuilder()
+            .setHeader(SPProtocol.RequestHeader.newBuilder()
+                .setMajorVersion(1)
+                .setMinorVersion(0)
+                .setRequestUuid("5f0b6a3e-7c1d-4e2a-9b8f-0d1c2e3f4a5b")
+                .setTargetName("com.pafc_preferences")
+                .setCommandMethod(SPProtocol.Command.CommandMethod.PUT_ALL))
+            .setBody(body)
+            .build();
+    }
+
+    private SPProtocol.Response buildResponse() {
+        final SPProtocol.ResponseBody.Builder body = SPProtocol.ResponseBody.newBuilder();
+        for (int i = 0; i < packets; i++) {
+            body.addPacketList(packet(i));
+        }
+        return SPProtocol.Response.newBuilder()
+            .setHeader(SPProtocol.ResponseHeader.newBuilder()
+                .setMajorVersion(1)
+                .setMinorVersion(0)
+                .setResponseCode(SPProtocol.ResponseHeader.ResponseCode.CODE_OK)
+                .setRequestUuid("5f0b6a3e-7c1d-4e2a-9b8f-0d1c2e3f4a5b")
+                .setResponseUuid("a1b2c3d4-e5f6-4a7b-8c9d-0e1f2a3b4c5d")
+                .setCommandMethod(SPProtocol.Command.CommandMethod.GET_ALL))
+            .setBody(body)
+            .build();
+    }
+
+    @Benchmark
+    public byte[] buildAndEncodeRequest() {
+        return buildRequest().toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeRequest() {
+        return mRequest.toByteArray();
+    }
+
+    @Benchmark
+    public SPProtocol.Request decodeRequest() throws InvalidProtocolBufferException {
+        return SPProtocol.Request.parseFrom(mRequestBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeResponse() {
+        return mResponse.toByteArray();
+    }
+
+    @Benchmark
+    public SPProtocol.Response decodeResponse() throws InvalidProtocolBufferException {
+        return SPProtocol.Response.parseFrom(mResponseBytes);
+    }
+}
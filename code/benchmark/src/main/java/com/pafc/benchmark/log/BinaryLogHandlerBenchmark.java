@@ -0,0 +1,78 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.BinaryLogHandler;
+import com.pafc.library.log.FileLogHandler;
+import com.pafc.library.log.PLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a xF line through PLog to the text file handler, which formats it, and to the binary one, which writes the
+ * fmt id and the raw arguments
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BinaryLogHandlerBenchmark {
+
+    private static final String TAG = "BinaryLogHandlerBenchmark";
+
+    @Param({"text", "binary"})
+    public String format;
+
+    private File mDirectory;
+
+    private PLog.Config mConfig;
+
+    private int mCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("plog", "benchmark");
+        mDirectory.delete();
+        mDirectory.mkdirs();
+        final PLog.Config.ILogHandler handler = "binary".equals(format)
+            ? new BinaryLogHandler(mDirectory, 1024 * 1024, 4)
+            : new FileLogHandler(mDirectory, 1024 * 1024, 4);
+        mConfig = new PLog.Config.Builder().setLogHandler(handler).build();
+        PLog.setConsoleLogVisible(false);
+        PLog.addLogConfig(mConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PLog.removeLogConfig(mConfig);
+        PLog.setConsoleLogVisible(true);
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Benchmark
+    public void formatLine() {
+        PLog.dF(TAG, "sync finished, %d items from %s in %d ms", mCount++, "server", 35);
+    }
+}
@@ -0,0 +1,161 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.FileLogHandler;
+import com.pafc.library.log.PLog;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * lines per second written by {@link FileLogHandler}, by the same with the closed segments compressed in the
+ * background, and by a plain buffered FileOutputStream handler formatting the same line with SimpleDateFormat and
+ * String.getBytes, all rotating at the same total size
+ * the bytes counter is the written bytes per second, divide by 1000000 for MB/s
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FileLogHandlerBenchmark {
+
+    private static final String TAG = "FileLogHandlerBenchmark";
+
+    private static final String MESSAGE = "sync finished, 20 items from the server in 35 ms, cache updated";
+
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+
+    private static final int SEGMENT_COUNT = 4;
+
+    // 18 bytes of time, " D/", ": " and "\n"
+    private static final int LINE_LENGTH = 18 + 3 + TAG.length() + 2 + MESSAGE.length() + 1;
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    private File mDirectory;
+
+    private FileLogHandler mMappedHandler;
+
+    private FileLogHandler mArchivingHandler;
+
+    private StreamLogHandler mStreamHandler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("plog", "benchmark");
+        mDirectory.delete();
+        mDirectory.mkdirs();
+        mMappedHandler = new FileLogHandler(new File(mDirectory, "mapped"), SEGMENT_SIZE, SEGMENT_COUNT);
+        mArchivingHandler = new FileLogHandler(new File(mDirectory, "archiving"), SEGMENT_SIZE, SEGMENT_COUNT * 4,
+            true, (long) SEGMENT_SIZE * SEGMENT_COUNT);
+        mStreamHandler = new StreamLogHandler(new File(mDirectory, "stream.log"), (long) SEGMENT_SIZE * SEGMENT_COUNT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mMappedHandler.close();
+        mArchivingHandler.close();
+        mStreamHandler.close();
+        delete(mDirectory);
+    }
+
+    @Benchmark
+    public void mapped(Counters counters) {
+        mMappedHandler.onLog(PLog.LEVEL_DEBUG, TAG, MESSAGE);
+        counters.bytes += LINE_LENGTH;
+    }
+
+    @Benchmark
+    public void mappedArchiving(Counters counters) {
+        mArchivingHandler.onLog(PLog.LEVEL_DEBUG, TAG, MESSAGE);
+        counters.bytes += LINE_LENGTH;
+    }
+
+    @Benchmark
+    public void bufferedStream(Counters counters) {
+        mStreamHandler.onLog(PLog.LEVEL_DEBUG, TAG, MESSAGE);
+        counters.bytes += LINE_LENGTH;
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * the straightforward handler, truncates the file when it reaches the max size
+     */
+    private static class StreamLogHandler implements PLog.Config.ILogHandler {
+
+        private final File mFile;
+        private final long mMaxSize;
+        private final SimpleDateFormat mDateFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        private OutputStream mOutputStream;
+        private long mSize;
+
+        StreamLogHandler(File file, long maxSize) throws IOException {
+            mFile = file;
+            mMaxSize = maxSize;
+            mOutputStream = new BufferedOutputStream(new FileOutputStream(file), 8192);
+        }
+
+        @Override
+        public void onLog(int level, String tag, String message) {
+            final byte[] line = (mDateFormat.format(new Date()) + " D/" + tag + ": " + message + "\n").getBytes();
+            try {
+                if (mSize + line.length > mMaxSize) {
+                    mOutputStream.close();
+                    mOutputStream = new BufferedOutputStream(new FileOutputStream(mFile), 8192);
+                    mSize = 0;
+                }
+                mOutputStream.write(line);
+                mSize += line.length;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void close() throws IOException {
+            mOutputStream.close();
+        }
+    }
+}
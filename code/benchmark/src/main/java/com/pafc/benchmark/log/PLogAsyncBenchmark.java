@@ -0,0 +1,73 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the time a log call takes on the calling thread, when the sink is slow (it burns cpu like a disk write),
+ * in the sync mode and in the async mode with the block and the drop overflow policies
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PLogAsyncBenchmark {
+
+    private static final String TAG = "PLogAsyncBenchmark";
+
+    @Param({"sync", "block", "drop"})
+    public String mode;
+
+    @Param({"64"})
+    public int sinkCost;
+
+    private PLog.Config mConfig;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PLog.setConsoleLogVisible(false);
+        final long cost = sinkCost;
+        mConfig = new PLog.Config.Builder().setLogHandler(new PLog.Config.ILogHandler() {
+            @Override
+            public void onLog(int level, String tag, String message) {
+                Blackhole.consumeCPU(cost);
+            }
+        }).build();
+        PLog.addLogConfig(mConfig);
+        if ("block".equals(mode)) {
+            PLog.startAsyncLog(1024, PLog.ASYNC_OVERFLOW_BLOCK);
+        } else if ("drop".equals(mode)) {
+            PLog.startAsyncLog(1024, PLog.ASYNC_OVERFLOW_DROP);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PLog.stopAsyncLog();
+        PLog.removeLogConfig(mConfig);
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Benchmark
+    public void log() {
+        PLog.d(TAG, "sync finished");
+    }
+}
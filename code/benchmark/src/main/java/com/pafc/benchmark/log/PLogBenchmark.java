@@ -0,0 +1,64 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one log line to the console sink, with a tag and with the tag created from the stack trace,
+ * formatted on the fast path and on the Formatter fallback, and skipped by the level gate
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PLogBenchmark {
+
+    private static final String TAG = "PLogBenchmark";
+
+    private int mCount;
+
+    @Benchmark
+    public void withTag() {
+        PLog.d(TAG, "sync finished");
+    }
+
+    @Benchmark
+    public void createTag() {
+        PLog.d("sync finished");
+    }
+
+    @Benchmark
+    public void formatWithTag() {
+        PLog.dF(TAG, "sync finished, %d items", mCount++);
+    }
+
+    @Benchmark
+    public void formatFourArgs() {
+        PLog.dF(TAG, "sync %s finished, %d of %d items in %d ms", TAG, mCount, mCount++, 20);
+    }
+
+    @Benchmark
+    public void formatFallback() {
+        PLog.dF(TAG, "sync finished, %05d items", mCount++);
+    }
+
+    @Benchmark
+    public void belowMinimumLevel() {
+        PLog.setConsoleMinimumLogLevel(PLog.LEVEL_INFO);
+        PLog.dF(TAG, "sync finished, %d items", mCount++);
+        PLog.setConsoleMinimumLogLevel(PLog.LEVEL_VERBOSE);
+    }
+}
@@ -0,0 +1,98 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * 1. a line below the level of all sinks, and one taken by all of them, with a growing number of sinks
+ * 2. the churn group logs on three threads while a fourth adds and removes a sink, the stress test of the
+ *    copy on write snapshot, a ConcurrentModificationException there fails the run
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PLogConfigBenchmark {
+
+    private static final String TAG = "PLogConfigBenchmark";
+
+    @Param({"1", "4", "16"})
+    public int sinkCount;
+
+    private PLog.Config[] mConfigs;
+
+    private PLog.Config mChurnConfig;
+
+    @Setup(Level.Trial)
+    public void setUp(final Blackhole blackhole) {
+        PLog.setConsoleLogVisible(false);
+        final PLog.Config.ILogHandler handler = new PLog.Config.ILogHandler() {
+            @Override
+            public void onLog(int level, String tag, String message) {
+                blackhole.consume(message);
+            }
+        };
+        mConfigs = new PLog.Config[sinkCount];
+        for (int i = 0; i < sinkCount; i++) {
+            mConfigs[i] = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_INFO).setLogHandler(handler).build();
+            PLog.addLogConfig(mConfigs[i]);
+        }
+        mChurnConfig = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_VERBOSE).setLogHandler(handler).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (PLog.Config config : mConfigs) {
+            PLog.removeLogConfig(config);
+        }
+        PLog.removeLogConfig(mChurnConfig);
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Benchmark
+    public void belowAllSinks() {
+        PLog.d(TAG, "frame rendered");
+    }
+
+    @Benchmark
+    public void takenByAllSinks() {
+        PLog.i(TAG, "frame rendered");
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(3)
+    public void churnLog() {
+        PLog.d(TAG, "frame rendered");
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void churnAddRemove() {
+        PLog.addLogConfig(mChurnConfig);
+        PLog.removeLogConfig(mChurnConfig);
+    }
+}
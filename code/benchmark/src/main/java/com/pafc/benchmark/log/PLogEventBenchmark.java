@@ -0,0 +1,101 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.LogRecord;
+import com.pafc.library.log.PLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the same line with three values as an event, as a dF line and as a concatenated message,
+ * into a record handler that reads the values, and an event below the level
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PLogEventBenchmark {
+
+    private static final String TAG = "Sync";
+
+    private PLog.Config mConfig;
+
+    private int mCount;
+
+    @Setup(Level.Trial)
+    public void setUp(final Blackhole blackhole) {
+        PLog.setConsoleLogVisible(false);
+        mConfig = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_DEBUG)
+            .setLogHandler(new PLog.Config.IRecordLogHandler() {
+                @Override
+                public void onLog(LogRecord record) {
+                    final int fieldCount = record.getFieldCount();
+                    if (fieldCount > 0) {
+                        for (int i = 0; i < fieldCount; i++) {
+                            blackhole.consume(record.getFieldKey(i));
+                            blackhole.consume(record.getLongField(i));
+                        }
+                    } else if (record.getFormat() != null) {
+                        for (int i = 0; i < record.getArgumentCount(); i++) {
+                            blackhole.consume(record.getArgument(i));
+                        }
+                    } else {
+                        blackhole.consume(record.getMessage());
+                    }
+                }
+
+                @Override
+                public void onLog(int level, String tag, String message) {
+                    blackhole.consume(message);
+                }
+            }).build();
+        PLog.addLogConfig(mConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PLog.removeLogConfig(mConfig);
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Benchmark
+    public void event() {
+        final int count = mCount++;
+        PLog.event(PLog.LEVEL_INFO, TAG).message("sync finished")
+            .put("items", count).put("ms", 35).put("retries", 2).log();
+    }
+
+    @Benchmark
+    public void format() {
+        final int count = mCount++;
+        PLog.dF(TAG, "sync finished items=%d ms=%d retries=%d", count, 35, 2);
+    }
+
+    @Benchmark
+    public void concat() {
+        final int count = mCount++;
+        PLog.d(TAG, "sync finished items=" + count + " ms=" + 35 + " retries=" + 2);
+    }
+
+    @Benchmark
+    public void disabledEvent() {
+        final int count = mCount++;
+        PLog.event(PLog.LEVEL_VERBOSE, TAG).message("sync finished")
+            .put("items", count).put("ms", 35).put("retries", 2).log();
+    }
+}
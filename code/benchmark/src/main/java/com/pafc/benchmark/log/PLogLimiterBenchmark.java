@@ -0,0 +1,80 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a line logged in a hot loop, to a sink without limit, with a tag rate limit, with a format rate limit and
+ * with 1% sampling, on one and on four threads, almost all lines are suppressed in the limited cases
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PLogLimiterBenchmark {
+
+    private static final String TAG = "PLogLimiterBenchmark";
+
+    @Param({"none", "tag", "format", "sample"})
+    public String limit;
+
+    private PLog.Config mConfig;
+
+    private int mCount;
+
+    @Setup(Level.Trial)
+    public void setUp(final Blackhole blackhole) {
+        final PLog.Config.Builder builder = new PLog.Config.Builder().setLogHandler(new PLog.Config.ILogHandler() {
+            @Override
+            public void onLog(int level, String tag, String message) {
+                blackhole.consume(message);
+            }
+        });
+        if ("tag".equals(limit)) {
+            builder.setTagRateLimit(100, 10);
+        } else if ("format".equals(limit)) {
+            builder.setFormatRateLimit(100, 10);
+        } else if ("sample".equals(limit)) {
+            builder.setSampleRate(0.01f);
+        }
+        mConfig = builder.build();
+        PLog.setConsoleLogVisible(false);
+        PLog.addLogConfig(mConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PLog.removeLogConfig(mConfig);
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Benchmark
+    public void hotLoop() {
+        PLog.dF(TAG, "frame %d rendered", mCount++);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void hotLoopFourThreads() {
+        PLog.dF(TAG, "frame %d rendered", mCount++);
+    }
+}
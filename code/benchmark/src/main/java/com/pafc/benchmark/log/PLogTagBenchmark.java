@@ -0,0 +1,69 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one untagged log line in each tag mode, and the same line with a tag kept in a class constant
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PLogTagBenchmark {
+
+    private static final String TAG = PLog.classTag(PLogTagBenchmark.class);
+
+    @Param({"off", "class", "full"})
+    public String tagMode;
+
+    private int mCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("off".equals(tagMode)) {
+            PLog.setTagMode(PLog.TAG_MODE_OFF);
+        } else if ("class".equals(tagMode)) {
+            PLog.setTagMode(PLog.TAG_MODE_CLASS_ONLY);
+        } else {
+            PLog.setTagMode(PLog.TAG_MODE_FULL);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PLog.setTagMode(PLog.TAG_MODE_FULL);
+    }
+
+    @Benchmark
+    public void untagged() {
+        PLog.d("sync finished");
+    }
+
+    @Benchmark
+    public void untaggedFormat() {
+        PLog.dF("sync finished, %d items", mCount++);
+    }
+
+    @Benchmark
+    public void classConstant() {
+        PLog.d(TAG, "sync finished");
+    }
+}
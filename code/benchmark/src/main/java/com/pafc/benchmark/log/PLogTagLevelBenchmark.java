@@ -0,0 +1,95 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+import com.pafc.library.log.TagLevelRules;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a line of a tag silenced by a rule, of a tag with a prefix rule and of a tag without a rule,
+ * with a growing number of tag and prefix rules on the sink, and a prefix rule tag built per line,
+ * like the tags of {@link PLog#TAG_MODE_FULL}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PLogTagLevelBenchmark {
+
+    private static final String NOISY_TAG = "Noisy";
+
+    private static final String PLAYER_TAG = "player.Decoder";
+
+    private static final String OTHER_TAG = "Other";
+
+    private static final String PLAYER_CLASS = "player.Decoder ";
+
+    @Param({"0", "10", "100"})
+    public int ruleCount;
+
+    private PLog.Config mConfig;
+
+    @Setup(Level.Trial)
+    public void setUp(final Blackhole blackhole) {
+        final TagLevelRules.Builder builder = new TagLevelRules.Builder();
+        for (int i = 0; i < ruleCount; i++) {
+            builder.setTagLevel("Tag" + i, PLog.LEVEL_WARN);
+            builder.setPrefixLevel("prefix" + i + ".", PLog.LEVEL_INFO);
+        }
+        builder.setTagLevel(NOISY_TAG, TagLevelRules.LEVEL_OFF);
+        builder.setPrefixLevel("player.", PLog.LEVEL_VERBOSE);
+
+        PLog.setConsoleLogVisible(false);
+        mConfig = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_DEBUG).setTagLevelRules(builder.build())
+            .setLogHandler(new PLog.Config.ILogHandler() {
+                @Override
+                public void onLog(int level, String tag, String message) {
+                    blackhole.consume(message);
+                }
+            }).build();
+        PLog.addLogConfig(mConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PLog.removeLogConfig(mConfig);
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Benchmark
+    public void silencedTag() {
+        PLog.d(NOISY_TAG, "frame rendered");
+    }
+
+    @Benchmark
+    public void prefixRuleTag() {
+        PLog.v(PLAYER_TAG, "frame decoded");
+    }
+
+    @Benchmark
+    public void builtPrefixRuleTag() {
+        PLog.v(PLAYER_CLASS + "decode:" + ruleCount, "frame decoded");
+    }
+
+    @Benchmark
+    public void tagWithoutRule() {
+        PLog.d(OTHER_TAG, "frame rendered");
+    }
+}
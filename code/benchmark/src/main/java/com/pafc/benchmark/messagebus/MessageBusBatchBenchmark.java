@@ -0,0 +1,67 @@
+package com.pafc.benchmark.messagebus;
+
+import com.pafc.library.messagebus.MessageBus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import android.os.Looper;
+
+/**
+ * the messages of a finished sync, posted one by one or as one batch, until the main looper pass
+ * delivered them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MessageBusBatchBenchmark {
+
+    private static final int BATCH = 32;
+
+    private MessageBus mBus;
+
+    private final int[] mMessageIds = new int[BATCH];
+
+    private final Object[] mObjects = new Object[BATCH];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mBus = MessageBus.getInstance();
+        mBus.addSubscriberIndex(new BenchmarkSubscriberIndex());
+        for (Object presenter : Presenters.newPresenters(10)) {
+            mBus.register(presenter);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            mMessageIds[i] = i % 2 == 0 ? Presenters.MSG_PROGRESS : Presenters.MSG_STATE_CHANGED;
+            mObjects[i] = i % 2 == 0 ? i : null;
+        }
+    }
+
+    @Benchmark
+    public int post() {
+        for (int i = 0; i < BATCH; i++) {
+            mBus.post(mMessageIds[i], mObjects[i]);
+        }
+        return Looper.getMainLooper().drain();
+    }
+
+    @Benchmark
+    public int postBatch() {
+        mBus.postBatch(mMessageIds, mObjects);
+        return Looper.getMainLooper().drain();
+    }
+}
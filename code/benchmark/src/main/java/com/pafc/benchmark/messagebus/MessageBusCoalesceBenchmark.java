@@ -0,0 +1,69 @@
+package com.pafc.benchmark.messagebus;
+
+import com.pafc.library.messagebus.MessageBus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import android.os.Looper;
+
+/**
+ * a burst of progress posts between two main looper passes, each post queued and delivered, or
+ * coalesced into the waiting one
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MessageBusCoalesceBenchmark {
+
+    private static final int BURST = 100;
+
+    private MessageBus mBus;
+
+    private final Integer[] mProgress = new Integer[BURST];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mBus = MessageBus.getInstance();
+        mBus.addSubscriberIndex(new BenchmarkSubscriberIndex());
+        for (Object presenter : Presenters.newPresenters(10)) {
+            mBus.register(presenter);
+        }
+        for (int i = 0; i < BURST; i++) {
+            mProgress[i] = i;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public int post() {
+        for (Integer progress : mProgress) {
+            mBus.post(Presenters.MSG_PROGRESS, progress);
+        }
+        return Looper.getMainLooper().drain();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public int postCoalesced() {
+        for (Integer progress : mProgress) {
+            mBus.postCoalesced(Presenters.MSG_PROGRESS, progress);
+        }
+        return Looper.getMainLooper().drain();
+    }
+}
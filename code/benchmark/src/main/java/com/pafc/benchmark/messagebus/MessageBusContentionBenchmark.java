@@ -0,0 +1,88 @@
+package com.pafc.benchmark.messagebus;
+
+import com.pafc.library.messagebus.MessageBus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * postImmediate from 1, 4 and 8 threads at the same time, and a stress group which registers and
+ * unregisters while 4 threads post
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MessageBusContentionBenchmark {
+
+    private MessageBus mBus;
+
+    private final Integer mProgress = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mBus = MessageBus.getInstance();
+        mBus.addSubscriberIndex(new BenchmarkSubscriberIndex());
+        for (Object presenter : Presenters.newPresenters()) {
+            mBus.register(presenter);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void post1Thread() {
+        mBus.postImmediate(Presenters.MSG_PROGRESS, mProgress);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void post4Threads() {
+        mBus.postImmediate(Presenters.MSG_PROGRESS, mProgress);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void post8Threads() {
+        mBus.postImmediate(Presenters.MSG_PROGRESS, mProgress);
+    }
+
+    @State(Scope.Thread)
+    public static class Churn {
+        final Object[] presenters = Presenters.newPresenters();
+    }
+
+    @Benchmark
+    @Group("stress")
+    @GroupThreads(4)
+    public void stressPost() {
+        mBus.postImmediate(Presenters.MSG_PROGRESS, mProgress);
+    }
+
+    @Benchmark
+    @Group("stress")
+    @GroupThreads(1)
+    public void stressRegister(Churn churn) {
+        for (Object presenter : churn.presenters) {
+            mBus.register(presenter);
+        }
+        for (Object presenter : churn.presenters) {
+            mBus.unRegister(presenter);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.pafc.benchmark.messagebus;
+
+import com.pafc.library.messagebus.MessageBus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * steady state dispatch of one sync message to every presenter, through the generated invokers
+ * or the reflection ones
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MessageBusDispatchBenchmark {
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private MessageBus mBus;
+
+    private final Integer mProgress = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mBus = MessageBus.getInstance();
+        if (indexed) {
+            mBus.addSubscriberIndex(new BenchmarkSubscriberIndex());
+        }
+        for (Object presenter : Presenters.newPresenters()) {
+            mBus.register(presenter);
+        }
+    }
+
+    @Benchmark
+    public void postImmediateWithArgument() {
+        mBus.postImmediate(Presenters.MSG_PROGRESS, mProgress);
+    }
+
+    @Benchmark
+    public void postImmediateWithoutArgument() {
+        mBus.postImmediate(Presenters.MSG_STATE_CHANGED);
+    }
+}
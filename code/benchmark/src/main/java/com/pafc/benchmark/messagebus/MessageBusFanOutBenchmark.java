@@ -0,0 +1,52 @@
+package com.pafc.benchmark.messagebus;
+
+import com.pafc.library.messagebus.MessageBus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * one sync post delivered to 1, 10 and 100 subscribers. run it on two commits and compare the json
+ * results to see the cost of the dispatch table layout
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MessageBusFanOutBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int subscribers;
+
+    private MessageBus mBus;
+
+    private final Integer mProgress = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mBus = MessageBus.getInstance();
+        mBus.addSubscriberIndex(new BenchmarkSubscriberIndex());
+        for (Object presenter : Presenters.newPresenters(subscribers)) {
+            mBus.register(presenter);
+        }
+    }
+
+    @Benchmark
+    public void fanOut() {
+        mBus.postImmediate(Presenters.MSG_PROGRESS, mProgress);
+    }
+}
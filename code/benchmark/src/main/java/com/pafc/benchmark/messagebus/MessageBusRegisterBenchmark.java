@@ -0,0 +1,56 @@
+package com.pafc.benchmark.messagebus;
+
+import com.pafc.library.messagebus.MessageBus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * time-to-first-register: a fresh jvm per measurement registers one instance of each presenter
+ * class, with and without the generated subscriber index
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class MessageBusRegisterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private MessageBus mBus;
+
+    private Object[] mPresenters;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mBus = MessageBus.getInstance();
+        if (indexed) {
+            mBus.addSubscriberIndex(new BenchmarkSubscriberIndex());
+        }
+        // load the classes out of the measurement
+        mPresenters = Presenters.newPresenters();
+    }
+
+    @Benchmark
+    public MessageBus firstRegister() {
+        for (Object presenter : mPresenters) {
+            mBus.register(presenter);
+        }
+        return mBus;
+    }
+}
@@ -0,0 +1,259 @@
+package com.pafc.benchmark.messagebus;
+
+import com.pafc.library.messagebus.MessageAsyncHandle;
+import com.pafc.library.messagebus.MessageHandle;
+
+/**
+ * subscriber classes shaped like the presenters of a screen, a few handlers each
+ */
+public final class Presenters {
+
+    public static final int MSG_LOADED = 1;
+    public static final int MSG_PROGRESS = 2;
+    public static final int MSG_STATE_CHANGED = 3;
+    public static final int MSG_SYNC = 4;
+
+    private Presenters() {
+    }
+
+    /**
+     * one instance of every presenter class
+     */
+    public static Object[] newPresenters() {
+        return new Object[]{            new Presenter0(),
+            new Presenter1(),
+            new Presenter2(),
+            new Presenter3(),
+            new Presenter4(),
+            new Presenter5(),
+            new Presenter6(),
+            new Presenter7()
+        };
+    }
+
+    /**
+     * the presenters for a fan-out of count subscribers, spread over the presenter classes
+     */
+    public static Object[] newPresenters(int count) {
+        final Object[] presenters = new Object[count];
+        for (int i = 0; i < count; i++) {
+            switch (i % 8) {
+                case 0:
+                    presenters[i] = new Presenter0();
+                    break;
+                case 1:
+                    presenters[i] = new Presenter1();
+                    break;
+                case 2:
+                    presenters[i] = new Presenter2();
+                    break;
+                case 3:
+                    presenters[i] = new Presenter3();
+                    break;
+                case 4:
+                    presenters[i] = new Presenter4();
+                    break;
+                case 5:
+                    presenters[i] = new Presenter5();
+                    break;
+                case 6:
+                    presenters[i] = new Presenter6();
+                    break;
+                default:
+                    presenters[i] = new Presenter7();
+                    break;
+            }
+        }
+        return presenters;
+    }
+
+    static void consume(Object value) {
+        if (value == Presenters.class) {
+            throw new AssertionError();
+        }
+    }
+
+    public static class Presenter0 {
+
+        @MessageHandle(MSG_LOADED)
+        public void onLoaded(String value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_PROGRESS)
+        public void onProgress(Integer value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_STATE_CHANGED)
+        public void onStateChanged() {
+            consume(this);
+        }
+
+        @MessageAsyncHandle(MSG_SYNC)
+        public void onSync(Object value) {
+            consume(value);
+        }
+    }
+
+    public static class Presenter1 {
+
+        @MessageHandle(MSG_LOADED)
+        public void onLoaded(String value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_PROGRESS)
+        public void onProgress(Integer value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_STATE_CHANGED)
+        public void onStateChanged() {
+            consume(this);
+        }
+
+        @MessageAsyncHandle(MSG_SYNC)
+        public void onSync(Object value) {
+            consume(value);
+        }
+    }
+
+    public static class Presenter2 {
+
+        @MessageHandle(MSG_LOADED)
+        public void onLoaded(String value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_PROGRESS)
+        public void onProgress(Integer value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_STATE_CHANGED)
+        public void onStateChanged() {
+            consume(this);
+        }
+
+        @MessageAsyncHandle(MSG_SYNC)
+        public void onSync(Object value) {
+            consume(value);
+        }
+    }
+
+    public static class Presenter3 {
+
+        @MessageHandle(MSG_LOADED)
+        public void onLoaded(String value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_PROGRESS)
+        public void onProgress(Integer value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_STATE_CHANGED)
+        public void onStateChanged() {
+            consume(this);
+        }
+
+        @MessageAsyncHandle(MSG_SYNC)
+        public void onSync(Object value) {
+            consume(value);
+        }
+    }
+
+    public static class Presenter4 {
+
+        @MessageHandle(MSG_LOADED)
+        public void onLoaded(String value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_PROGRESS)
+        public void onProgress(Integer value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_STATE_CHANGED)
+        public void onStateChanged() {
+            consume(this);
+        }
+
+        @MessageAsyncHandle(MSG_SYNC)
+        public void onSync(Object value) {
+            consume(value);
+        }
+    }
+
+    public static class Presenter5 {
+
+        @MessageHandle(MSG_LOADED)
+        public void onLoaded(String value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_PROGRESS)
+        public void onProgress(Integer value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_STATE_CHANGED)
+        public void onStateChanged() {
+            consume(this);
+        }
+
+        @MessageAsyncHandle(MSG_SYNC)
+        public void onSync(Object value) {
+            consume(value);
+        }
+    }
+
+    public static class Presenter6 {
+
+        @MessageHandle(MSG_LOADED)
+        public void onLoaded(String value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_PROGRESS)
+        public void onProgress(Integer value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_STATE_CHANGED)
+        public void onStateChanged() {
+            consume(this);
+        }
+
+        @MessageAsyncHandle(MSG_SYNC)
+        public void onSync(Object value) {
+            consume(value);
+        }
+    }
+
+    public static class Presenter7 {
+
+        @MessageHandle(MSG_LOADED)
+        public void onLoaded(String value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_PROGRESS)
+        public void onProgress(Integer value) {
+            consume(value);
+        }
+
+        @MessageHandle(MSG_STATE_CHANGED)
+        public void onStateChanged() {
+            consume(this);
+        }
+
+        @MessageAsyncHandle(MSG_SYNC)
+        public void onSync(Object value) {
+            consume(value);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.ConcurrentWeakReferenceList;
+import com.pafc.library.util.WeakReferenceList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * the listener fan out under contention, three threads notify the listeners while a fourth registers and
+ * unregisters one, the concurrent list against the array list behind Collections.synchronizedList,
+ * which must be locked for the whole iteration
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConcurrentWeakReferenceListBenchmark {
+
+    @Param({"10", "100"})
+    public int size;
+
+    @Param({"concurrent", "synchronized"})
+    public String backend;
+
+    private Object[] mListeners;
+
+    private Object mChurnListener;
+
+    private Collection<Object> mList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mListeners = new Object[size];
+        for (int i = 0; i < size; i++) {
+            mListeners[i] = new Object();
+        }
+        mChurnListener = new Object();
+        if ("concurrent".equals(backend)) {
+            mList = new ConcurrentWeakReferenceList<>();
+        } else {
+            final List<Object> list = WeakReferenceList.newWeakReferenceArrayList();
+            mList = Collections.synchronizedList(list);
+        }
+        for (Object listener : mListeners) {
+            mList.add(listener);
+        }
+    }
+
+    @Benchmark
+    @Group("fanOut")
+    @GroupThreads(3)
+    public void notifyListeners(Blackhole blackhole) {
+        if (mList instanceof ConcurrentWeakReferenceList) {
+            for (Object listener : mList) {
+                blackhole.consume(listener);
+            }
+        } else {
+            synchronized (mList) {
+                for (Object listener : mList) {
+                    blackhole.consume(listener);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("fanOut")
+    @GroupThreads(1)
+    public void registerAndUnregister() {
+        mList.add(mChurnListener);
+        mList.remove(mChurnListener);
+    }
+}
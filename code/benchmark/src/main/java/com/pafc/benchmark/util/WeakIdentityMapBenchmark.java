@@ -0,0 +1,110 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.ConcurrentWeakIdentityMap;
+import com.pafc.library.util.WeakIdentityMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * the per object cache use of the weak maps against Collections.synchronizedMap(new WeakHashMap())
+ * 1. a hit, and a put and remove of the same key
+ * 2. the cache group reads on three threads while a fourth puts and removes, the weakIdentity map is not
+ *    thread safe, it is run behind Collections.synchronizedMap there
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WeakIdentityMapBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    @Param({"weakIdentity", "concurrentWeakIdentity", "synchronizedWeakHashMap"})
+    public String backend;
+
+    private Object[] mKeys;
+
+    private Object mChurnKey;
+
+    private Map<Object, Object> mMap;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int index;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mKeys = new Object[size];
+        for (int i = 0; i < size; i++) {
+            mKeys[i] = new Object();
+        }
+        mChurnKey = new Object();
+        if ("weakIdentity".equals(backend)) {
+            mMap = Collections.synchronizedMap(new WeakIdentityMap<>());
+        } else if ("concurrentWeakIdentity".equals(backend)) {
+            mMap = new ConcurrentWeakIdentityMap<>();
+        } else {
+            mMap = Collections.synchronizedMap(new WeakHashMap<>());
+        }
+        for (Object key : mKeys) {
+            mMap.put(key, key);
+        }
+    }
+
+    private Object nextKey(Cursor cursor) {
+        final int index = cursor.index;
+        cursor.index = index + 1 == size ? 0 : index + 1;
+        return mKeys[index];
+    }
+
+    @Benchmark
+    public Object get(Cursor cursor) {
+        return mMap.get(nextKey(cursor));
+    }
+
+    @Benchmark
+    public Object putAndRemove() {
+        mMap.put(mChurnKey, mChurnKey);
+        return mMap.remove(mChurnKey);
+    }
+
+    @Benchmark
+    @Group("cache")
+    @GroupThreads(3)
+    public Object cacheGet(Cursor cursor) {
+        return mMap.get(nextKey(cursor));
+    }
+
+    @Benchmark
+    @Group("cache")
+    @GroupThreads(1)
+    public Object cachePutAndRemove() {
+        mMap.put(mChurnKey, mChurnKey);
+        return mMap.remove(mChurnKey);
+    }
+}
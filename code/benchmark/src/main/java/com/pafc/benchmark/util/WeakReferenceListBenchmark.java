@@ -0,0 +1,91 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.IdentityWeakReferenceList;
+import com.pafc.library.util.WeakReferenceList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the listener registry use of the list: fill, membership test, unregister and register again, and iteration
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WeakReferenceListBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"array", "linked", "identity"})
+    public String backend;
+
+    private Object[] mListeners;
+
+    private Collection<Object> mList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mListeners = new Object[size];
+        for (int i = 0; i < size; i++) {
+            mListeners[i] = new Object();
+        }
+        mList = newList();
+        for (Object listener : mListeners) {
+            mList.add(listener);
+        }
+    }
+
+    private Collection<Object> newList() {
+        if ("identity".equals(backend)) {
+            return new IdentityWeakReferenceList<>();
+        }
+        return "array".equals(backend) ? WeakReferenceList.newWeakReferenceArrayList()
+            : WeakReferenceList.newWeakReferenceLinkedList();
+    }
+
+    @Benchmark
+    public Collection<Object> add() {
+        final Collection<Object> list = newList();
+        for (Object listener : mListeners) {
+            list.add(listener);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public boolean containsLast() {
+        return mList.contains(mListeners[size - 1]);
+    }
+
+    @Benchmark
+    public boolean removeAndAdd() {
+        final Object listener = mListeners[size / 2];
+        mList.remove(listener);
+        return mList.add(listener);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Object listener : mList) {
+            blackhole.consume(listener);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.WeakReferenceList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * the bulk calls against the element by element copies the callers wrote before them
+ * 1. toArray in one pass against a copy through the iterator
+ * 2. removing every other listener with removeMatching against the removal through the iterator, on a refilled list
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WeakReferenceListBulkBenchmark {
+
+    private static final WeakReferenceList.Filter<Listener> ODD_FILTER = new WeakReferenceList.Filter<Listener>() {
+        @Override
+        public boolean matches(Listener item) {
+            return item.isOdd;
+        }
+    };
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"array", "linked"})
+    public String backend;
+
+    private Listener[] mListeners;
+
+    private WeakReferenceList<Listener> mList;
+
+    private static class Listener {
+
+        final boolean isOdd;
+
+        Listener(boolean isOdd) {
+            this.isOdd = isOdd;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mListeners = new Listener[size];
+        for (int i = 0; i < size; i++) {
+            mListeners[i] = new Listener((i & 1) != 0);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        mList = "array".equals(backend) ? WeakReferenceList.<Listener>newWeakReferenceArrayList()
+            : WeakReferenceList.<Listener>newWeakReferenceLinkedList();
+        for (Listener listener : mListeners) {
+            mList.add(listener);
+        }
+    }
+
+    @Benchmark
+    public Object[] toArray() {
+        return mList.toArray(new Listener[0]);
+    }
+
+    @Benchmark
+    public Object[] toArrayThroughIterator() {
+        final List<Listener> copy = new ArrayList<>();
+        for (Listener listener : mList) {
+            copy.add(listener);
+        }
+        return copy.toArray(new Listener[copy.size()]);
+    }
+
+    @Benchmark
+    public boolean removeMatching() {
+        return mList.removeMatching(ODD_FILTER);
+    }
+
+    @Benchmark
+    public boolean removeThroughIterator() {
+        boolean isRemoved = false;
+        final Iterator<Listener> iterator = mList.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isOdd) {
+                iterator.remove();
+                isRemoved = true;
+            }
+        }
+        return isRemoved;
+    }
+}
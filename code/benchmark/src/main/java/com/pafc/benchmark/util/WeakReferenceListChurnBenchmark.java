@@ -0,0 +1,78 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.WeakReferenceList;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * a registry with a fixed set of live listeners and a stream of listeners that are registered and dropped,
+ * like views that do not unregister, run long to see the time per op and the slot count stay flat
+ * slots: the slot count of the list summed per op, divided by the ops of churn it is the average slot count
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 30, time = 1)
+@Fork(1)
+public class WeakReferenceListChurnBenchmark {
+
+    @Param({"100"})
+    public int size;
+
+    @Param({"array", "linked"})
+    public String backend;
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long slots;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            slots = 0;
+        }
+    }
+
+    private Object[] mListeners;
+
+    private List<Object> mList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mListeners = new Object[size];
+        for (int i = 0; i < size; i++) {
+            mListeners[i] = new Object();
+        }
+        mList = "array".equals(backend) ? WeakReferenceList.newWeakReferenceArrayList()
+            : WeakReferenceList.newWeakReferenceLinkedList();
+        for (Object listener : mListeners) {
+            mList.add(listener);
+        }
+    }
+
+    @Benchmark
+    public boolean churn(Counters counters) {
+        mList.add(new Object());
+        counters.slots += mList.size();
+        return mList.contains(mListeners[size - 1]);
+    }
+}
@@ -0,0 +1,106 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the async mode switched on and off while other threads log: every line is delivered exactly once,
+ * whether it went through the ring or came after the stop
+ */
+public class PLogAsyncTest {
+
+    private static final String TAG = "PLogAsyncTest";
+
+    private static final int LOG_THREADS = 4;
+    private static final int LINES_PER_THREAD = 20000;
+
+    private ExecutorService mExecutor;
+
+    private PLog.Config mConfig;
+
+    @Before
+    public void setUp() {
+        PLog.setConsoleLogVisible(false);
+        mExecutor = Executors.newFixedThreadPool(LOG_THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        PLog.stopAsyncLog();
+        if (mConfig != null) {
+            PLog.removeLogConfig(mConfig);
+        }
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Test
+    public void stopAsyncLogWhileLoggingLosesNoLine() throws Exception {
+        final RecordingHandler handler = new RecordingHandler();
+        mConfig = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_INFO).setLogHandler(handler).build();
+        PLog.addLogConfig(mConfig);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger runningCount = new AtomicInteger(LOG_THREADS);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < LOG_THREADS; i++) {
+            final int thread = i;
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    try {
+                        for (int j = 0; j < LINES_PER_THREAD; j++) {
+                            PLog.i(TAG, thread + ":" + j);
+                        }
+                    } finally {
+                        runningCount.decrementAndGet();
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        while (runningCount.get() > 0) {
+            PLog.startAsyncLog(64, PLog.ASYNC_OVERFLOW_BLOCK);
+            PLog.stopAsyncLog();
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        assertEquals(0, handler.mDuplicateCount.get());
+        assertEquals(LOG_THREADS * LINES_PER_THREAD, handler.mLines.size());
+    }
+
+    private static final class RecordingHandler implements PLog.Config.ILogHandler {
+
+        final ConcurrentHashMap<String, Boolean> mLines = new ConcurrentHashMap<>();
+
+        final AtomicInteger mDuplicateCount = new AtomicInteger();
+
+        @Override
+        public void onLog(int level, String tag, String message) {
+            if (mLines.putIfAbsent(message, Boolean.TRUE) != null) {
+                mDuplicateCount.incrementAndGet();
+            }
+        }
+    }
+}
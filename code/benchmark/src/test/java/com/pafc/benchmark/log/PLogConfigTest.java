@@ -0,0 +1,163 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ * the churn group of PLogConfigBenchmark with assertions
+ * 1. the configs added for the whole run get every line of their level exactly once, and none below it, while
+ *    other threads add and remove configs
+ * 2. a churned config never gets a line twice
+ * 3. the minimum level of the snapshot is the one of the configs left, after the churn
+ * </pre>
+ */
+public class PLogConfigTest {
+
+    private static final String TAG = "PLogConfigTest";
+
+    private static final int LOG_THREADS = 3;
+    private static final int LINES_PER_THREAD = 20000;
+    private static final int CHURN_THREADS = 2;
+    private static final int CHURN_ROUNDS = 5000;
+    private static final int STABLE_CONFIGS = 2;
+
+    private ExecutorService mExecutor;
+
+    private final List<PLog.Config> mAddedConfigs = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        PLog.setConsoleLogVisible(false);
+        mExecutor = Executors.newFixedThreadPool(LOG_THREADS + CHURN_THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        for (PLog.Config config : mAddedConfigs) {
+            PLog.removeLogConfig(config);
+        }
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Test
+    public void logWhileAddingAndRemovingConfigs() throws Exception {
+        final RecordingHandler[] stable = new RecordingHandler[STABLE_CONFIGS];
+        for (int i = 0; i < STABLE_CONFIGS; i++) {
+            stable[i] = new RecordingHandler();
+            addConfig(PLog.LEVEL_INFO, stable[i]);
+        }
+        assertFalse(PLog.isLoggable(PLog.LEVEL_DEBUG));
+
+        final RecordingHandler[] churned = new RecordingHandler[CHURN_THREADS];
+        final PLog.Config[] churnConfigs = new PLog.Config[CHURN_THREADS];
+        for (int i = 0; i < CHURN_THREADS; i++) {
+            churned[i] = new RecordingHandler();
+            churnConfigs[i] = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_VERBOSE).setLogHandler(churned[i])
+                .build();
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < LOG_THREADS; i++) {
+            final int thread = i;
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < LINES_PER_THREAD; j++) {
+                        PLog.i(TAG, thread + ":" + j);
+                        // only the churned configs take it
+                        PLog.d(TAG, "debug " + thread + ":" + j);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (int i = 0; i < CHURN_THREADS; i++) {
+            final PLog.Config config = churnConfigs[i];
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < CHURN_ROUNDS; j++) {
+                        PLog.addLogConfig(config);
+                        PLog.removeLogConfig(config);
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        final int lineCount = LOG_THREADS * LINES_PER_THREAD;
+        for (RecordingHandler handler : stable) {
+            assertEquals(0, handler.mDuplicateCount.get());
+            assertEquals(0, handler.mDebugCount.get());
+            assertEquals(lineCount, handler.mLines.size());
+        }
+        for (RecordingHandler handler : churned) {
+            assertEquals(0, handler.mDuplicateCount.get());
+            assertTrue(handler.mDebugCount.get() <= lineCount);
+            assertTrue(handler.mLines.size() - handler.mDebugCount.get() <= lineCount);
+        }
+
+        // the churned configs are all removed, the stable ones take INFO and up only
+        assertFalse(PLog.isLoggable(PLog.LEVEL_VERBOSE));
+        assertFalse(PLog.isLoggable(PLog.LEVEL_DEBUG));
+        assertTrue(PLog.isLoggable(PLog.LEVEL_INFO));
+
+        PLog.addLogConfig(churnConfigs[0]);
+        assertTrue(PLog.isLoggable(PLog.LEVEL_VERBOSE));
+        PLog.removeLogConfig(churnConfigs[0]);
+        assertFalse(PLog.isLoggable(PLog.LEVEL_VERBOSE));
+    }
+
+    private void addConfig(int level, PLog.Config.ILogHandler handler) {
+        final PLog.Config config = new PLog.Config.Builder().setLogLevel(level).setLogHandler(handler).build();
+        PLog.addLogConfig(config);
+        mAddedConfigs.add(config);
+    }
+
+    private static final class RecordingHandler implements PLog.Config.ILogHandler {
+
+        final ConcurrentHashMap<String, Boolean> mLines = new ConcurrentHashMap<>();
+
+        final AtomicInteger mDuplicateCount = new AtomicInteger();
+
+        final AtomicInteger mDebugCount = new AtomicInteger();
+
+        @Override
+        public void onLog(int level, String tag, String message) {
+            if (level == PLog.LEVEL_DEBUG) {
+                mDebugCount.incrementAndGet();
+            }
+            if (mLines.putIfAbsent(message, Boolean.TRUE) != null) {
+                mDuplicateCount.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the format rate limit: the lines with an equal fmt share one limit, whatever the fmt instance, the lines
+ * without a fmt are not limited by it
+ */
+public class PLogLimiterTest {
+
+    private static final String TAG = "PLogLimiterTest";
+
+    private static final String FMT = "frame %d decoded";
+
+    private PLog.Config mConfig;
+
+    private final List<String> mMessages = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        PLog.setConsoleLogVisible(false);
+        mConfig = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_VERBOSE).setFormatRateLimit(1, 1)
+            .setSuppressedSummaryInterval(0).setLogHandler(new PLog.Config.ILogHandler() {
+                @Override
+                public void onLog(int level, String tag, String message) {
+                    mMessages.add(message);
+                }
+            }).build();
+        PLog.addLogConfig(mConfig);
+    }
+
+    @After
+    public void tearDown() {
+        PLog.removeLogConfig(mConfig);
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Test
+    public void equalFormatsShareOneLimit() {
+        PLog.iF(TAG, FMT, 1);
+        PLog.iF(TAG, new String(FMT), 2);
+        PLog.iF(TAG, "frame %d rendered", 3);
+        assertEquals(2, mMessages.size());
+        assertEquals("frame 1 decoded", mMessages.get(0));
+        assertEquals("frame 3 rendered", mMessages.get(1));
+    }
+
+    @Test
+    public void linesWithoutFormatAreNotLimited() {
+        for (int i = 0; i < 3; i++) {
+            PLog.i(TAG, "frame decoded");
+        }
+        assertEquals(3, mMessages.size());
+    }
+}
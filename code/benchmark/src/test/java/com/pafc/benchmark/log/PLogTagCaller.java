@@ -0,0 +1,16 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+/**
+ * another caller class for {@link PLogTagTest}, logging the same fmt literal
+ */
+final class PLogTagCaller {
+
+    private PLogTagCaller() {
+    }
+
+    static void log(int count) {
+        PLog.iF(PLogTagTest.FMT, count);
+    }
+}
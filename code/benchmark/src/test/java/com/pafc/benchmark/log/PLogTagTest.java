@@ -0,0 +1,59 @@
+package com.pafc.benchmark.log;
+
+import com.pafc.library.log.PLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the tags of {@link PLog#TAG_MODE_CLASS_ONLY}: the same fmt literal logged from two classes gets the tag of
+ * each caller, not the one of the first line seen
+ */
+public class PLogTagTest {
+
+    static final String FMT = "sync finished, %d items";
+
+    private PLog.Config mConfig;
+
+    private final List<String> mTags = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        PLog.setConsoleLogVisible(false);
+        PLog.setTagMode(PLog.TAG_MODE_CLASS_ONLY);
+        mConfig = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_VERBOSE).setLogHandler(new PLog.Config.ILogHandler() {
+            @Override
+            public void onLog(int level, String tag, String message) {
+                mTags.add(tag);
+            }
+        }).build();
+        PLog.addLogConfig(mConfig);
+    }
+
+    @After
+    public void tearDown() {
+        PLog.removeLogConfig(mConfig);
+        PLog.setTagMode(PLog.TAG_MODE_FULL);
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Test
+    public void sharedFmtLiteralGetsTheTagOfEachCaller() {
+        for (int i = 0; i < 2; i++) {
+            PLog.iF(FMT, i);
+            PLogTagCaller.log(i);
+        }
+        assertEquals(4, mTags.size());
+        assertEquals("PLogTagTest", mTags.get(0));
+        assertEquals("PLogTagCaller", mTags.get(1));
+        assertEquals("PLogTagTest", mTags.get(2));
+        assertEquals("PLogTagCaller", mTags.get(3));
+        assertEquals(PLog.classTag(PLogTagCaller.class), mTags.get(3));
+    }
+}
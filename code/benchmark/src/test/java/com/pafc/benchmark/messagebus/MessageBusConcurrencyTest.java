@@ -0,0 +1,220 @@
+package com.pafc.benchmark.messagebus;
+
+import android.os.Looper;
+
+import com.pafc.library.messagebus.MessageBus;
+import com.pafc.library.messagebus.MessageHandle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ * the stress group of MessageBusContentionBenchmark with assertions
+ * 1. the subscribers registered for the whole run get every post exactly once, whatever the register and
+ *    unRegister calls of the other threads do to the snapshot
+ * 2. a churned subscriber never gets a post twice
+ * 3. the last snapshot holds exactly the subscribers left registered, each once
+ * </pre>
+ */
+public class MessageBusConcurrencyTest {
+
+    private static final int MSG_COUNT = 10;
+
+    private static final int POST_THREADS = 4;
+    private static final int POSTS_PER_THREAD = 20000;
+    private static final int CHURN_THREADS = 2;
+    private static final int CHURN_ROUNDS = 2000;
+    private static final int CHURN_SUBSCRIBERS = 8;
+    private static final int STABLE_SUBSCRIBERS = 4;
+
+    private MessageBus mBus;
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mBus = new MessageBus.Builder().build();
+        mBus.addSubscriberIndex(new TestSubscriberIndex());
+        mExecutor = Executors.newFixedThreadPool(POST_THREADS + CHURN_THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        mBus.release();
+    }
+
+    @Test
+    public void postImmediateWhileRegistering() throws Exception {
+        final CountingSubscriber[] stable = newSubscribers(STABLE_SUBSCRIBERS);
+        for (CountingSubscriber subscriber : stable) {
+            mBus.register(subscriber);
+        }
+        final CountingSubscriber[][] churned = new CountingSubscriber[CHURN_THREADS][];
+        for (int i = 0; i < CHURN_THREADS; i++) {
+            churned[i] = newSubscribers(CHURN_SUBSCRIBERS);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < POST_THREADS; i++) {
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < POSTS_PER_THREAD; j++) {
+                        mBus.postImmediate(MSG_COUNT, null);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (int i = 0; i < CHURN_THREADS; i++) {
+            final CountingSubscriber[] subscribers = churned[i];
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < CHURN_ROUNDS; j++) {
+                        for (CountingSubscriber subscriber : subscribers) {
+                            mBus.register(subscriber);
+                        }
+                        for (CountingSubscriber subscriber : subscribers) {
+                            mBus.unRegister(subscriber);
+                        }
+                    }
+                    // leave the even ones registered
+                    for (int j = 0; j < subscribers.length; j += 2) {
+                        mBus.register(subscribers[j]);
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        final int postCount = POST_THREADS * POSTS_PER_THREAD;
+        for (CountingSubscriber subscriber : stable) {
+            assertEquals(postCount, subscriber.mCount.get());
+        }
+        for (CountingSubscriber[] subscribers : churned) {
+            for (CountingSubscriber subscriber : subscribers) {
+                assertTrue(subscriber.mCount.get() <= postCount);
+            }
+        }
+
+        // the last snapshot
+        resetCounts(stable);
+        for (CountingSubscriber[] subscribers : churned) {
+            resetCounts(subscribers);
+        }
+        mBus.postImmediate(MSG_COUNT, null);
+        for (CountingSubscriber subscriber : stable) {
+            assertEquals(1, subscriber.mCount.get());
+        }
+        for (CountingSubscriber[] subscribers : churned) {
+            for (int j = 0; j < subscribers.length; j++) {
+                assertEquals(j % 2 == 0 ? 1 : 0, subscribers[j].mCount.get());
+            }
+        }
+    }
+
+    @Test
+    public void queuedPostsWhileRegisteringTheSameObjects() throws Exception {
+        final CountingSubscriber[] shared = newSubscribers(CHURN_SUBSCRIBERS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        final AtomicInteger postCount = new AtomicInteger();
+        for (int i = 0; i < POST_THREADS; i++) {
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < POSTS_PER_THREAD / 10; j++) {
+                        mBus.post(MSG_COUNT, (Object) null);
+                        postCount.incrementAndGet();
+                    }
+                    return null;
+                }
+            }));
+        }
+        // every churn thread registers the same objects, so the racing registers must not add one twice
+        for (int i = 0; i < CHURN_THREADS; i++) {
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < CHURN_ROUNDS; j++) {
+                        for (CountingSubscriber subscriber : shared) {
+                            mBus.register(subscriber);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        // the posts are queued to the main looper, delivered on this thread
+        final int delivered = Looper.getMainLooper().drain();
+        assertEquals(postCount.get(), delivered);
+        for (CountingSubscriber subscriber : shared) {
+            assertEquals(postCount.get(), subscriber.mCount.get());
+        }
+
+        for (int j = 1; j < shared.length; j += 2) {
+            mBus.unRegister(shared[j]);
+        }
+        resetCounts(shared);
+        mBus.postImmediate(MSG_COUNT, null);
+        for (int j = 0; j < shared.length; j++) {
+            assertEquals(j % 2 == 0 ? 1 : 0, shared[j].mCount.get());
+        }
+    }
+
+    private static CountingSubscriber[] newSubscribers(int count) {
+        final CountingSubscriber[] subscribers = new CountingSubscriber[count];
+        for (int i = 0; i < count; i++) {
+            subscribers[i] = new CountingSubscriber();
+        }
+        return subscribers;
+    }
+
+    private static void resetCounts(CountingSubscriber[] subscribers) {
+        for (CountingSubscriber subscriber : subscribers) {
+            subscriber.mCount.set(0);
+        }
+    }
+
+    public static class CountingSubscriber {
+
+        final AtomicInteger mCount = new AtomicInteger();
+
+        @MessageHandle(MSG_COUNT)
+        public void onCount() {
+            mCount.incrementAndGet();
+        }
+    }
+}
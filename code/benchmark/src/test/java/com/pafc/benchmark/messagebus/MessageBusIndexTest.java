@@ -0,0 +1,117 @@
+package com.pafc.benchmark.messagebus;
+
+import android.os.Looper;
+
+import com.pafc.library.messagebus.MessageBus;
+import com.pafc.library.messagebus.MessageHandle;
+import com.pafc.library.messagebus.SubscriberInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * the generated index of the test sources, TestSubscriberIndex, for the subscribers which inherit handles
+ */
+public class MessageBusIndexTest {
+
+    private static final int MSG_BASE = 1;
+    private static final int MSG_SUB = 2;
+    private static final int MSG_THROWING = 3;
+
+    private MessageBus mBus;
+
+    @Before
+    public void setUp() {
+        mBus = new MessageBus.Builder().build();
+        mBus.addSubscriberIndex(new TestSubscriberIndex());
+    }
+
+    @After
+    public void tearDown() {
+        mBus.release();
+    }
+
+    @Test
+    public void inheritedHandleIsIndexedUnderTheSubscriberClass() {
+        final TestSubscriberIndex index = new TestSubscriberIndex();
+
+        final SubscriberInfo baseInfo = index.getSubscriberInfo(BaseSubscriber.class);
+        assertNotNull(baseInfo);
+        assertSame(BaseSubscriber.class, baseInfo.getSubscriberClass());
+        assertEquals(1, baseInfo.getMethods().length);
+
+        final SubscriberInfo subInfo = index.getSubscriberInfo(SubSubscriber.class);
+        assertNotNull(subInfo);
+        assertSame(SubSubscriber.class, subInfo.getSubscriberClass());
+        assertEquals(2, subInfo.getMethods().length);
+    }
+
+    @Test
+    public void inheritedHandleIsDeliveredToBothClasses() {
+        final BaseSubscriber base = new BaseSubscriber();
+        final SubSubscriber sub = new SubSubscriber();
+        mBus.register(base);
+        mBus.register(sub);
+
+        // boxed, post(int, int) would pick the delayed post
+        mBus.post(MSG_BASE, Integer.valueOf(1));
+        mBus.post(MSG_SUB, Integer.valueOf(2));
+        Looper.getMainLooper().drain();
+
+        assertEquals(1, base.mBaseCount);
+        assertEquals(1, sub.mBaseCount);
+        assertEquals(1, sub.mSubCount);
+    }
+
+    @Test
+    public void checkedExceptionOfAHandleIsRethrownUnchecked() {
+        final ThrowingSubscriber subscriber = new ThrowingSubscriber();
+        mBus.register(subscriber);
+
+        // the bus logs the exception of a handle and goes on with the next post
+        mBus.postImmediate(MSG_THROWING, "fail");
+        mBus.postImmediate(MSG_THROWING, "ok");
+        assertEquals(2, subscriber.mCount);
+        assertNotNull(new TestSubscriberIndex().getSubscriberInfo(ThrowingSubscriber.class));
+    }
+
+    public static class BaseSubscriber {
+
+        int mBaseCount;
+
+        @MessageHandle(MSG_BASE)
+        public void onBase(Integer value) {
+            mBaseCount++;
+        }
+    }
+
+    public static class SubSubscriber extends BaseSubscriber {
+
+        int mSubCount;
+
+        @MessageHandle(MSG_SUB)
+        public void onSub(Integer value) {
+            mSubCount++;
+        }
+    }
+
+    public static class ThrowingSubscriber {
+
+        int mCount;
+
+        @MessageHandle(MSG_THROWING)
+        public void onThrowing(Object value) throws IOException {
+            mCount++;
+            if ("fail".equals(value)) {
+                throw new IOException("fail");
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.pafc.benchmark.messagebus;
+
+import com.pafc.library.messagebus.MessageAsyncHandle;
+import com.pafc.library.messagebus.MessageBus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the serial lanes on a pool which is always full: every post is run or counted as dropped, none
+ * waits in a lane forever after its drain task was dropped
+ */
+public class MessageBusSerialLaneTest {
+
+    private static final int MSG_SERIAL = 30;
+
+    private static final int POST_THREADS = 4;
+    private static final int POSTS_PER_THREAD = 20000;
+
+    private MessageBus mBus;
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mBus = new MessageBus.Builder().setPoolSize(1).setQueueCapacity(1)
+            .setRejectionPolicy(MessageBus.RejectionPolicy.DROP_NEWEST).build();
+        mBus.addSubscriberIndex(new TestSubscriberIndex());
+        mExecutor = Executors.newFixedThreadPool(POST_THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        mBus.release();
+    }
+
+    @Test
+    public void everyPostIsRunOrDropped() throws Exception {
+        final SerialSubscriber[] subscribers = {new SerialSubscriber(), new SerialSubscriber()};
+        for (SerialSubscriber subscriber : subscribers) {
+            mBus.register(subscriber);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < POST_THREADS; i++) {
+            futures.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < POSTS_PER_THREAD; j++) {
+                        mBus.postImmediate(MSG_SERIAL, null);
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        final long handleCount = (long) POST_THREADS * POSTS_PER_THREAD * subscribers.length;
+        final long deadline = System.currentTimeMillis() + 10000;
+        long doneCount;
+        do {
+            doneCount = mBus.getDroppedTaskCount();
+            for (SerialSubscriber subscriber : subscribers) {
+                doneCount += subscriber.mCount.get();
+            }
+        } while (doneCount < handleCount && System.currentTimeMillis() < deadline && sleep());
+        assertEquals(handleCount, doneCount);
+        assertEquals(0, mBus.getQueuedTaskCount());
+    }
+
+    private static boolean sleep() throws InterruptedException {
+        Thread.sleep(10);
+        return true;
+    }
+
+    public static class SerialSubscriber {
+
+        final AtomicInteger mCount = new AtomicInteger();
+
+        @MessageAsyncHandle(value = MSG_SERIAL, serial = MessageAsyncHandle.SerialMode.SUBSCRIBER)
+        public void onSerial() {
+            mCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.pafc.benchmark.messagebus;
+
+import android.os.Looper;
+
+import com.pafc.library.messagebus.MessageBus;
+import com.pafc.library.messagebus.MessageHandle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * the sticky delivery of the register: on the main thread, and once when the sticky post is still queued
+ */
+public class MessageBusStickyTest {
+
+    private static final int MSG_STICKY = 20;
+
+    private MessageBus mBus;
+
+    @Before
+    public void setUp() {
+        mBus = new MessageBus.Builder().build();
+        mBus.addSubscriberIndex(new TestSubscriberIndex());
+        Looper.getMainLooper().drain();
+    }
+
+    @After
+    public void tearDown() {
+        mBus.release();
+    }
+
+    @Test
+    public void registerOnMainThreadGetsTheQueuedStickyPostOnce() {
+        final StickySubscriber subscriber = new StickySubscriber();
+        mBus.postSticky(MSG_STICKY, "first");
+        mBus.register(subscriber);
+        assertEquals(1, subscriber.mValues.size());
+
+        Looper.getMainLooper().drain();
+        assertEquals(1, subscriber.mValues.size());
+        assertEquals("first", subscriber.mValues.get(0));
+    }
+
+    @Test
+    public void registerOnOtherThreadGetsTheStickyPostOnTheMainThread() throws InterruptedException {
+        mBus.postSticky(MSG_STICKY, "first");
+        Looper.getMainLooper().drain();
+
+        final StickySubscriber subscriber = new StickySubscriber();
+        registerOnOtherThread(subscriber);
+        assertEquals(0, subscriber.mValues.size());
+
+        Looper.getMainLooper().drain();
+        assertEquals(1, subscriber.mValues.size());
+        assertSame(Thread.currentThread(), subscriber.mThreads.get(0));
+    }
+
+    @Test
+    public void registerOnOtherThreadBeforeTheQueuedStickyPostGetsItOnce() throws InterruptedException {
+        final StickySubscriber subscriber = new StickySubscriber();
+        mBus.postSticky(MSG_STICKY, "first");
+        registerOnOtherThread(subscriber);
+
+        Looper.getMainLooper().drain();
+        assertEquals(1, subscriber.mValues.size());
+        assertSame(Thread.currentThread(), subscriber.mThreads.get(0));
+
+        // a later sticky post is a new one
+        mBus.postSticky(MSG_STICKY, "second");
+        Looper.getMainLooper().drain();
+        assertEquals(2, subscriber.mValues.size());
+        assertEquals("second", subscriber.mValues.get(1));
+    }
+
+    @Test
+    public void unRegisterBeforeTheStickyDeliveryDropsIt() throws InterruptedException {
+        mBus.postSticky(MSG_STICKY, "first");
+        Looper.getMainLooper().drain();
+
+        final StickySubscriber subscriber = new StickySubscriber();
+        registerOnOtherThread(subscriber);
+        mBus.unRegister(subscriber);
+
+        Looper.getMainLooper().drain();
+        assertEquals(0, subscriber.mValues.size());
+        assertEquals("first", mBus.getStickyMessage(MSG_STICKY));
+    }
+
+    private void registerOnOtherThread(final Object subscriber) throws InterruptedException {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mBus.register(subscriber);
+            }
+        });
+        thread.start();
+        thread.join();
+    }
+
+    public static class StickySubscriber {
+
+        final List<String> mValues = new ArrayList<>();
+        final List<Thread> mThreads = new ArrayList<>();
+
+        @MessageHandle(MSG_STICKY)
+        public void onSticky(String value) {
+            mValues.add(value);
+            mThreads.add(Thread.currentThread());
+        }
+    }
+}
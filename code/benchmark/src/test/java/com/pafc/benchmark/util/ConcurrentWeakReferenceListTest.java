@@ -0,0 +1,260 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.ConcurrentWeakReferenceList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ * ConcurrentWeakReferenceList against a list of the items in order
+ * 1. random add, addIfAbsent, remove, contains and dropped items on one thread
+ * 2. the collected items leave the iteration once the gc cleared them, and the slots at the end of an iteration
+ *    that found a quarter of them cleared
+ * 3. the iterator remove leaves the snapshot of its iteration alone
+ * 4. writers and readers on several threads, the readers never fail, the items left are the ones of the writers
+ * </pre>
+ */
+public class ConcurrentWeakReferenceListTest {
+
+    private static final int POOL_SIZE = 64;
+    private static final int STEPS = 20000;
+    private static final int CHECK_INTERVAL = 2000;
+
+    private static final int WRITER_THREADS = 4;
+    private static final int READER_THREADS = 2;
+    private static final int WRITER_ROUNDS = 2000;
+    private static final int ITEMS_PER_WRITER = 8;
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newFixedThreadPool(WRITER_THREADS + READER_THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void randomOperationsAgainstModel() throws Exception {
+        final Random random = new Random(20160815);
+        final ConcurrentWeakReferenceList<Object> list = new ConcurrentWeakReferenceList<>();
+        final Object[] pool = new Object[POOL_SIZE];
+        final List<Object> model = new ArrayList<>();
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        final List<WeakReference<Object>> dropped = new ArrayList<>();
+
+        for (int step = 1; step <= STEPS; step++) {
+            final int i = random.nextInt(POOL_SIZE);
+            if (pool[i] == null) {
+                pool[i] = new Object();
+                continue;
+            }
+            Object item = pool[i];
+            final boolean isIn = model.contains(item);
+            final int operation = random.nextInt(12);
+            if (operation < 2) {
+                assertTrue(list.add(item));
+                model.add(item);
+            } else if (operation < 5) {
+                assertEquals(!isIn, list.addIfAbsent(item));
+                if (!isIn) {
+                    model.add(item);
+                }
+            } else if (operation < 8) {
+                assertEquals(isIn, list.remove(item));
+                model.remove(item);
+            } else if (operation < 11) {
+                assertEquals(isIn, list.contains(item));
+            } else {
+                // only the list holds it now, maybe in several slots
+                if (isIn) {
+                    while (model.remove(item)) {
+                        // all of them
+                    }
+                    dropped.add(new WeakReference<>(item, queue));
+                }
+                pool[i] = null;
+            }
+
+            // the local would keep a dropped item alive through the check below
+            item = null;
+
+            if (step % CHECK_INTERVAL == 0) {
+                GcHelper.awaitCollected(queue, dropped.size());
+                dropped.clear();
+                assertTrue(list.size() >= model.size());
+                assertSameItems(model, list);
+            }
+        }
+    }
+
+    @Test
+    public void collectedItemsAreDropped() throws Exception {
+        final ConcurrentWeakReferenceList<Object> list = new ConcurrentWeakReferenceList<>();
+        final Object kept = new Object();
+        list.add(kept);
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        final List<WeakReference<Object>> dropped = addDropped(list, queue, 100);
+        assertEquals(101, list.size());
+
+        GcHelper.awaitCollected(queue, dropped.size());
+        // the iteration skips the cleared slots, and removes them at its end
+        final List<Object> expected = new ArrayList<>();
+        expected.add(kept);
+        assertSameItems(expected, list);
+        assertEquals(1, list.size());
+    }
+
+    @Test
+    public void nullIsRejected() {
+        final ConcurrentWeakReferenceList<Object> list = new ConcurrentWeakReferenceList<>();
+        try {
+            list.add(null);
+            fail();
+        } catch (NullPointerException expected) {
+            // like IdentityWeakReferenceList
+        }
+        try {
+            list.addIfAbsent(null);
+            fail();
+        } catch (NullPointerException expected) {
+            // like IdentityWeakReferenceList
+        }
+        assertFalse(list.contains(null));
+        assertFalse(list.remove(null));
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void iteratorRemoveKeepsItsSnapshot() {
+        final ConcurrentWeakReferenceList<Object> list = new ConcurrentWeakReferenceList<>();
+        final Object[] items = {new Object(), new Object(), new Object()};
+        for (Object item : items) {
+            list.add(item);
+        }
+        final Iterator<Object> iterator = list.iterator();
+        int index = 0;
+        while (iterator.hasNext()) {
+            assertSame(items[index++], iterator.next());
+            iterator.remove();
+        }
+        assertEquals(items.length, index);
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void writersAndReaders() throws Exception {
+        final ConcurrentWeakReferenceList<Object> list = new ConcurrentWeakReferenceList<>();
+        final Object[][] items = new Object[WRITER_THREADS][ITEMS_PER_WRITER];
+        for (Object[] writerItems : items) {
+            for (int i = 0; i < writerItems.length; i++) {
+                writerItems[i] = new Object();
+            }
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean isWriting = new AtomicBoolean(true);
+        final List<Future<?>> writers = new ArrayList<>();
+        for (final Object[] writerItems : items) {
+            writers.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int round = 0; round < WRITER_ROUNDS; round++) {
+                        for (Object item : writerItems) {
+                            assertTrue(list.addIfAbsent(item));
+                        }
+                        for (Object item : writerItems) {
+                            assertTrue(list.remove(item));
+                        }
+                    }
+                    // leave the even ones
+                    for (int i = 0; i < writerItems.length; i += 2) {
+                        assertTrue(list.addIfAbsent(writerItems[i]));
+                    }
+                    return null;
+                }
+            }));
+        }
+        final List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < READER_THREADS; i++) {
+            readers.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    while (isWriting.get()) {
+                        for (Object item : list) {
+                            assertNotNull(item);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : writers) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        isWriting.set(false);
+        for (Future<?> future : readers) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        assertEquals(WRITER_THREADS * ITEMS_PER_WRITER / 2, list.size());
+        for (Object[] writerItems : items) {
+            for (int i = 0; i < writerItems.length; i++) {
+                assertEquals(i % 2 == 0, list.contains(writerItems[i]));
+            }
+        }
+        assertFalse(list.addIfAbsent(items[0][0]));
+    }
+
+    /**
+     * add count items held by the list only, in a method of their own so no local keeps them
+     */
+    private static List<WeakReference<Object>> addDropped(ConcurrentWeakReferenceList<Object> list,
+                                                          ReferenceQueue<Object> queue, int count) {
+        final List<WeakReference<Object>> references = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Object item = new Object();
+            list.add(item);
+            references.add(new WeakReference<>(item, queue));
+        }
+        return references;
+    }
+
+    private static void assertSameItems(List<Object> expected, Iterable<Object> actual) {
+        int index = 0;
+        for (Object item : actual) {
+            assertTrue("more items than " + expected.size(), index < expected.size());
+            assertSame(expected.get(index++), item);
+        }
+        assertEquals(expected.size(), index);
+    }
+}
@@ -0,0 +1,54 @@
+package com.pafc.benchmark.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * waits for the gc in the tests of the weak collections: the test keeps its own weak references to the dropped
+ * items on a queue, once they are enqueued the references of the collection are cleared too, and are enqueued
+ * to its queue by the reference handler thread soon after
+ */
+final class GcHelper {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private GcHelper() {
+    }
+
+    /**
+     * run the gc until count references of the queue are enqueued
+     */
+    static void awaitCollected(ReferenceQueue<Object> queue, int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        int collectedCount = 0;
+        while (collectedCount < count && System.currentTimeMillis() < deadline) {
+            System.gc();
+            if (queue.remove(50) != null) {
+                collectedCount++;
+                while (queue.poll() != null) {
+                    collectedCount++;
+                }
+            }
+        }
+        assertTrue("collected " + collectedCount + " of " + count, collectedCount >= count);
+    }
+
+    /**
+     * wait for the size, which drains the queue of the collection
+     */
+    static void awaitSize(Collection<?> collection, int size) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (collection.size() != size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(size, collection.size());
+    }
+
+    static void awaitSize(Map<?, ?> map, int size) throws InterruptedException {
+        awaitSize(map.keySet(), size);
+    }
+}
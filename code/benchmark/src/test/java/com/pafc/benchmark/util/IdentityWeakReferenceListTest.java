@@ -0,0 +1,202 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.IdentityWeakReferenceList;
+
+import org.junit.Test;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ * IdentityWeakReferenceList against a list of the items in the order of insertion
+ * 1. random add, remove, contains and dropped items, the items are equal strings, only the identity tells them
+ *    apart, so the index with its backward shift delete and the compaction are run with many collisions of equals
+ * 2. the collected items leave the list once the gc enqueued them
+ * 3. an iteration fails when an add compacts the slots, a remove during the iteration never does
+ * </pre>
+ */
+public class IdentityWeakReferenceListTest {
+
+    private static final int POOL_SIZE = 64;
+    private static final int STEPS = 20000;
+    private static final int CHECK_INTERVAL = 2000;
+
+    @Test
+    public void randomOperationsAgainstModel() throws Exception {
+        final Random random = new Random(20160814);
+        final IdentityWeakReferenceList<Object> list = new IdentityWeakReferenceList<>();
+        final Object[] pool = new Object[POOL_SIZE];
+        final List<Object> model = new ArrayList<>();
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        final List<WeakReference<Object>> dropped = new ArrayList<>();
+
+        for (int step = 1; step <= STEPS; step++) {
+            final int i = random.nextInt(POOL_SIZE);
+            if (pool[i] == null) {
+                pool[i] = new String("item");
+                continue;
+            }
+            Object item = pool[i];
+            final boolean isIn = indexOfIdentity(model, item) >= 0;
+            final int operation = random.nextInt(10);
+            if (operation < 4) {
+                assertEquals(!isIn, list.add(item));
+                if (!isIn) {
+                    model.add(item);
+                }
+            } else if (operation < 7) {
+                assertEquals(isIn, list.remove(item));
+                if (isIn) {
+                    model.remove(indexOfIdentity(model, item));
+                }
+            } else if (operation < 9) {
+                assertEquals(isIn, list.contains(item));
+            } else {
+                // only the list holds it now
+                if (isIn) {
+                    model.remove(indexOfIdentity(model, item));
+                    dropped.add(new WeakReference<>(item, queue));
+                }
+                pool[i] = null;
+            }
+
+            // the local would keep a dropped item alive through the check below
+            item = null;
+
+            if (step % CHECK_INTERVAL == 0) {
+                GcHelper.awaitCollected(queue, dropped.size());
+                dropped.clear();
+                GcHelper.awaitSize(list, model.size());
+                assertIdentical(model, list);
+            }
+        }
+    }
+
+    @Test
+    public void collectedItemsAreDropped() throws Exception {
+        final IdentityWeakReferenceList<Object> list = new IdentityWeakReferenceList<>();
+        final Object kept = new Object();
+        list.add(kept);
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        final List<WeakReference<Object>> dropped = addDropped(list, queue, 100);
+        assertEquals(101, list.size());
+
+        GcHelper.awaitCollected(queue, dropped.size());
+        GcHelper.awaitSize(list, 1);
+        final Iterator<Object> iterator = list.iterator();
+        assertSame(kept, iterator.next());
+        assertFalse(iterator.hasNext());
+        // the slots left by the collected items are reused
+        assertTrue(list.add(new Object()));
+        assertEquals(2, list.size());
+    }
+
+    @Test
+    public void addCompactingDuringIterationFails() {
+        final IdentityWeakReferenceList<Object> list = new IdentityWeakReferenceList<>(8);
+        final Object[] items = newItems(8);
+        for (Object item : items) {
+            list.add(item);
+        }
+        for (int i = 0; i < 4; i++) {
+            list.remove(items[i]);
+        }
+        final Iterator<Object> iterator = list.iterator();
+        assertSame(items[4], iterator.next());
+        // the slots are full and half of them removed, the add compacts
+        list.add(new Object());
+        try {
+            iterator.hasNext();
+            fail();
+        } catch (ConcurrentModificationException expected) {
+            // the positions of the iteration moved
+        }
+        try {
+            iterator.remove();
+            fail();
+        } catch (ConcurrentModificationException expected) {
+            // the slot of the last item moved
+        }
+        assertEquals(5, list.size());
+    }
+
+    @Test
+    public void removeDuringIterationNeverCompacts() {
+        final IdentityWeakReferenceList<Object> list = new IdentityWeakReferenceList<>(8);
+        final Object[] items = newItems(32);
+        for (Object item : items) {
+            list.add(item);
+        }
+        final Iterator<Object> iterator = list.iterator();
+        int index = 0;
+        while (iterator.hasNext()) {
+            assertSame(items[index], iterator.next());
+            if (index % 2 == 0) {
+                iterator.remove();
+            } else {
+                list.remove(items[index]);
+            }
+            index++;
+        }
+        assertEquals(items.length, index);
+        assertTrue(list.isEmpty());
+        // the emptied slots are compacted by the next adds
+        for (Object item : items) {
+            assertTrue(list.add(item));
+        }
+        assertIdentical(Arrays.asList(items), list);
+    }
+
+    private static Object[] newItems(int count) {
+        final Object[] items = new Object[count];
+        for (int i = 0; i < count; i++) {
+            items[i] = new Object();
+        }
+        return items;
+    }
+
+    /**
+     * add count items held by the list only, in a method of their own so no local keeps them
+     */
+    private static List<WeakReference<Object>> addDropped(IdentityWeakReferenceList<Object> list,
+                                                          ReferenceQueue<Object> queue, int count) {
+        final List<WeakReference<Object>> references = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Object item = new Object();
+            list.add(item);
+            references.add(new WeakReference<>(item, queue));
+        }
+        return references;
+    }
+
+    private static int indexOfIdentity(List<Object> model, Object item) {
+        for (int i = 0; i < model.size(); i++) {
+            if (model.get(i) == item) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void assertIdentical(List<Object> expected, Iterable<Object> actual) {
+        int index = 0;
+        for (Object item : actual) {
+            assertTrue("more items than " + expected.size(), index < expected.size());
+            assertSame(expected.get(index++), item);
+        }
+        assertEquals(expected.size(), index);
+    }
+}
@@ -0,0 +1,179 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.ConcurrentWeakIdentityMap;
+import com.pafc.library.util.WeakIdentityMap;
+
+import org.junit.Test;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ * WeakIdentityMap and ConcurrentWeakIdentityMap against an IdentityHashMap
+ * 1. random put, get, remove, containsKey and dropped keys, the keys are equal strings, only the identity tells
+ *    them apart, so the probe runs and their backward shift delete are long
+ * 2. the entries of the collected keys leave the map once the gc enqueued them
+ * 3. setValue and remove of the iteration write through
+ * </pre>
+ */
+public class WeakIdentityMapTest {
+
+    private static final int POOL_SIZE = 64;
+    private static final int STEPS = 20000;
+    private static final int CHECK_INTERVAL = 2000;
+
+    @Test
+    public void randomOperationsAgainstModel() throws Exception {
+        runAgainstModel(new WeakIdentityMap<Object, Integer>(), new Random(20160816));
+    }
+
+    @Test
+    public void concurrentRandomOperationsAgainstModel() throws Exception {
+        runAgainstModel(new ConcurrentWeakIdentityMap<Object, Integer>(), new Random(20160817));
+    }
+
+    @Test
+    public void collectedKeysAreDropped() throws Exception {
+        assertCollectedKeysAreDropped(new WeakIdentityMap<Object, Integer>());
+    }
+
+    @Test
+    public void concurrentCollectedKeysAreDropped() throws Exception {
+        assertCollectedKeysAreDropped(new ConcurrentWeakIdentityMap<Object, Integer>());
+    }
+
+    @Test
+    public void iterationWritesThrough() {
+        assertIterationWritesThrough(new WeakIdentityMap<Object, Integer>());
+    }
+
+    @Test
+    public void concurrentIterationWritesThrough() {
+        assertIterationWritesThrough(new ConcurrentWeakIdentityMap<Object, Integer>());
+    }
+
+    @Test
+    public void concurrentConditionalCalls() {
+        final ConcurrentWeakIdentityMap<Object, Integer> map = new ConcurrentWeakIdentityMap<>();
+        final Object key = new String("key");
+        assertNull(map.putIfAbsent(key, 1));
+        assertEquals(Integer.valueOf(1), map.putIfAbsent(key, 2));
+        assertNull(map.putIfAbsent(new String("key"), 3));
+        assertFalse(map.replace(key, 2, 4));
+        assertTrue(map.replace(key, 1, 4));
+        assertEquals(Integer.valueOf(4), map.replace(key, 5));
+        assertFalse(map.remove(key, 4));
+        assertTrue(map.remove(key, 5));
+        assertNull(map.replace(key, 6));
+        assertEquals(1, map.size());
+    }
+
+    private static void runAgainstModel(Map<Object, Integer> map, Random random) throws Exception {
+        final Object[] pool = new Object[POOL_SIZE];
+        final Map<Object, Integer> model = new IdentityHashMap<>();
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        final List<WeakReference<Object>> dropped = new ArrayList<>();
+
+        for (int step = 1; step <= STEPS; step++) {
+            final int i = random.nextInt(POOL_SIZE);
+            if (pool[i] == null) {
+                pool[i] = new String("key");
+                continue;
+            }
+            Object key = pool[i];
+            final int operation = random.nextInt(10);
+            if (operation < 4) {
+                final Integer value = step;
+                assertSame(model.put(key, value), map.put(key, value));
+            } else if (operation < 6) {
+                assertSame(model.remove(key), map.remove(key));
+            } else if (operation < 8) {
+                assertSame(model.get(key), map.get(key));
+            } else if (operation < 9) {
+                assertEquals(model.containsKey(key), map.containsKey(key));
+            } else {
+                // only the map holds it now
+                if (model.remove(key) != null) {
+                    dropped.add(new WeakReference<>(key, queue));
+                }
+                pool[i] = null;
+            }
+
+            // the local would keep a dropped key alive through the check below
+            key = null;
+
+            if (step % CHECK_INTERVAL == 0) {
+                GcHelper.awaitCollected(queue, dropped.size());
+                dropped.clear();
+                GcHelper.awaitSize(map, model.size());
+                for (Map.Entry<Object, Integer> entry : map.entrySet()) {
+                    assertTrue(model.containsKey(entry.getKey()));
+                    assertSame(model.get(entry.getKey()), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static void assertCollectedKeysAreDropped(Map<Object, Integer> map) throws Exception {
+        final Object kept = new Object();
+        map.put(kept, 0);
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        final List<WeakReference<Object>> dropped = putDropped(map, queue, 100);
+        assertEquals(101, map.size());
+
+        GcHelper.awaitCollected(queue, dropped.size());
+        GcHelper.awaitSize(map, 1);
+        assertEquals(Integer.valueOf(0), map.get(kept));
+        final Iterator<Object> iterator = map.keySet().iterator();
+        assertSame(kept, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    /**
+     * put count keys held by the map only, in a method of their own so no local keeps them
+     */
+    private static List<WeakReference<Object>> putDropped(Map<Object, Integer> map, ReferenceQueue<Object> queue,
+                                                          int count) {
+        final List<WeakReference<Object>> references = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Object key = new Object();
+            map.put(key, i + 1);
+            references.add(new WeakReference<>(key, queue));
+        }
+        return references;
+    }
+
+    private static void assertIterationWritesThrough(Map<Object, Integer> map) {
+        final Object[] keys = new Object[32];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new String("key");
+            map.put(keys[i], i);
+        }
+        final Iterator<Map.Entry<Object, Integer>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Object, Integer> entry = iterator.next();
+            if (entry.getValue() % 2 == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(-entry.getValue());
+            }
+        }
+        assertEquals(keys.length / 2, map.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(-i), map.get(keys[i]));
+        }
+    }
+}
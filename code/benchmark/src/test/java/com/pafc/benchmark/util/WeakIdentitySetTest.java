@@ -0,0 +1,80 @@
+package com.pafc.benchmark.util;
+
+import com.pafc.library.util.WeakIdentitySet;
+
+import org.junit.Test;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * both WeakIdentitySets against an identity set: random add, remove, contains and dropped items, the items are
+ * equal strings, and the collected items leave the set once the gc enqueued them
+ */
+public class WeakIdentitySetTest {
+
+    private static final int POOL_SIZE = 64;
+    private static final int STEPS = 10000;
+    private static final int CHECK_INTERVAL = 2000;
+
+    @Test
+    public void randomOperationsAgainstModel() throws Exception {
+        runAgainstModel(WeakIdentitySet.newWeakIdentitySet(), new Random(20160818));
+    }
+
+    @Test
+    public void concurrentRandomOperationsAgainstModel() throws Exception {
+        runAgainstModel(WeakIdentitySet.newConcurrentWeakIdentitySet(), new Random(20160819));
+    }
+
+    private static void runAgainstModel(Set<Object> set, Random random) throws Exception {
+        final Object[] pool = new Object[POOL_SIZE];
+        final Set<Object> model = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        final List<WeakReference<Object>> dropped = new ArrayList<>();
+
+        for (int step = 1; step <= STEPS; step++) {
+            final int i = random.nextInt(POOL_SIZE);
+            if (pool[i] == null) {
+                pool[i] = new String("item");
+                continue;
+            }
+            Object item = pool[i];
+            final int operation = random.nextInt(10);
+            if (operation < 4) {
+                assertEquals(model.add(item), set.add(item));
+            } else if (operation < 6) {
+                assertEquals(model.remove(item), set.remove(item));
+            } else if (operation < 9) {
+                assertEquals(model.contains(item), set.contains(item));
+            } else {
+                // only the set holds it now
+                if (model.remove(item)) {
+                    dropped.add(new WeakReference<>(item, queue));
+                }
+                pool[i] = null;
+            }
+
+            // the local would keep a dropped item alive through the check below
+            item = null;
+
+            if (step % CHECK_INTERVAL == 0) {
+                GcHelper.awaitCollected(queue, dropped.size());
+                dropped.clear();
+                GcHelper.awaitSize(set, model.size());
+                for (Object setItem : set) {
+                    assertTrue(model.contains(setItem));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.pafc.library.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <pre>
+ * the async mode of {@link PLog}
+ * 1. the logging threads copy the lines into a bounded ring of preallocated {@link LogRecord}s, lock free
+ * 2. one background thread takes them in order and calls the log handlers, the xF lines are formatted there
+ * 3. when the ring is full, the overflow policy blocks the logging thread, drops the line, or samples. a handler
+ *    logging on the background thread is never blocked, it would wait for itself, its line is dropped
+ * </pre>
+ * every slot has a sequence number, which tells whether it is free for the producer of a position or
+ * filled for the consumer, so the producers only compete on the tail counter.
+ * a producer counts itself in before it checks the stop flag and out after it published, the consumer
+ * stops only when no producer is in, so a line taken before the stop is never left in the ring
+ */
+final class AsyncLogDispatcher implements Runnable {
+
+    // keep one line of SAMPLE_RATE when the ring is more than 3/4 full
+    private static final int SAMPLE_RATE = 8;
+
+    private static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final LogRecord[] mRecords;
+
+    private final AtomicLongArray mSequences;
+
+    private final int mMask;
+
+    private final int mOverflowPolicy;
+
+    // next position to fill
+    private final AtomicLong mTail = new AtomicLong();
+
+    // next position to take, only written by the consumer
+    private volatile long mHead;
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    private final AtomicLong mSampleCounter = new AtomicLong();
+
+    // the producers between the stop check and the publish
+    private final AtomicInteger mActiveProducers = new AtomicInteger();
+
+    private final Thread mConsumer;
+
+    private volatile boolean isWaiting;
+
+    private volatile boolean isStopped;
+
+    AsyncLogDispatcher(int capacity, int overflowPolicy) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mRecords = new LogRecord[size];
+        mSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mRecords[i] = new LogRecord();
+            mSequences.set(i, i);
+        }
+        mMask = size - 1;
+        mOverflowPolicy = overflowPolicy;
+
+        mConsumer = new Thread(this, "plog_async");
+        mConsumer.setDaemon(true);
+        mConsumer.start();
+    }
+
+    /**
+     * after the stop, the line is delivered on the calling thread
+     *
+     * @return false if the line was dropped by the overflow policy
+     */
+    boolean enqueue(LogRecord source) {
+        mActiveProducers.incrementAndGet();
+        try {
+            if (isStopped) {
+                // read the dispatcher before stopAsyncLog, the consumer may be gone already
+                PLog.dispatch(source);
+                return true;
+            }
+            return publish(source);
+        } finally {
+            mActiveProducers.decrementAndGet();
+        }
+    }
+
+    private boolean publish(LogRecord source) {
+        if (mOverflowPolicy == PLog.ASYNC_OVERFLOW_SAMPLE && mTail.get() - mHead > (mRecords.length >> 2) * 3
+            && mSampleCounter.incrementAndGet() % SAMPLE_RATE != 0) {
+            mDroppedCount.incrementAndGet();
+            return false;
+        }
+
+        long position = mTail.get();
+        int index;
+        for (; ; ) {
+            index = (int) position & mMask;
+            final long difference = mSequences.get(index) - position;
+            if (difference == 0) {
+                if (mTail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = mTail.get();
+            } else if (difference < 0) {
+                // full, the consumer keeps taking the lines while this producer is in, even after the stop
+                if (mOverflowPolicy != PLog.ASYNC_OVERFLOW_BLOCK || Thread.currentThread() == mConsumer) {
+                    mDroppedCount.incrementAndGet();
+                    return false;
+                }
+                LockSupport.unpark(mConsumer);
+                LockSupport.parkNanos(this, BLOCK_WAIT_NANOS);
+                position = mTail.get();
+            } else {
+                position = mTail.get();
+            }
+        }
+
+        mRecords[index].copyFrom(source);
+        mSequences.set(index, position + 1);
+        if (isWaiting) {
+            LockSupport.unpark(mConsumer);
+        }
+        return true;
+    }
+
+    long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * stop the consumer after it delivered the lines already in the ring, and the ones of the producers
+     * which did not see the stop yet
+     *
+     * @param timeoutMillis the max wait time for the consumer
+     */
+    void shutdown(long timeoutMillis) {
+        isStopped = true;
+        LockSupport.unpark(mConsumer);
+        if (Thread.currentThread() != mConsumer) {
+            try {
+                mConsumer.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean hasPending() {
+        final long head = mHead;
+        return mSequences.get((int) head & mMask) == head + 1;
+    }
+
+    @Override
+    public void run() {
+        for (; ; ) {
+            final long head = mHead;
+            final int index = (int) head & mMask;
+            if (mSequences.get(index) == head + 1) {
+                final LogRecord record = mRecords[index];
+                try {
+                    PLog.dispatch(record);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                record.clear();
+                mSequences.set(index, head + mRecords.length);
+                mHead = head + 1;
+            } else if (isStopped) {
+                // a producer that saw no stop may still be publishing, its line must be taken too
+                if (mActiveProducers.get() == 0 && !hasPending()) {
+                    return;
+                }
+                Thread.yield();
+            } else {
+                isWaiting = true;
+                if (!hasPending()) {
+                    LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+                }
+                isWaiting = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.pafc.library.log;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ * log handler writing compact binary records to memory mapped segments, see {@link MappedSegmentFile}
+ * 1. the xF lines are not formatted, the fmt and the raw arguments are written, the log-decoder tool formats them
+ * 2. the tags, the fmts and the event keys are written once per segment and referenced by id after that
+ * 3. the time is a delta to the previous line
+ * 4. every segment starts with empty tables, so it can be decoded alone after the older ones are deleted
+ * </pre>
+ * <pre>
+ * records after the segment header, varint is unsigned LEB128, zigzag is a signed varint,
+ * string is a varint length and the UTF-8 bytes
+ * {@link #RECORD_TAG}    varint id, string tag
+ * {@link #RECORD_FORMAT} varint id, string fmt
+ * {@link #RECORD_LINE}   zigzag time delta in ms (the first line of a segment to the creation time in the header),
+ *                        byte level, varint tag id, varint fmt id (0 for a plain message),
+ *                        plain: string message / fmt: varint argument count, the typed arguments,
+ *                        byte 1 and string stack trace if there is a throwable, else byte 0
+ * {@link #RECORD_EVENT}  zigzag time delta in ms, byte level, varint tag id, the message as an argument,
+ *                        varint field count, the fields as a varint key id (from the fmt table) and an argument
+ * argument, a type byte and the value
+ * {@link #ARG_NULL}, {@link #ARG_INT} zigzag, {@link #ARG_LONG} zigzag, {@link #ARG_FLOAT} 4 bytes bits,
+ * {@link #ARG_DOUBLE} 8 bytes bits, {@link #ARG_FALSE}, {@link #ARG_TRUE}, {@link #ARG_CHAR} varint,
+ * {@link #ARG_STRING} string (any other object as String.valueOf)
+ * </pre>
+ * use it with {@link PLog#startAsyncLog(int, int)} to keep the writes off the calling threads
+ */
+public class BinaryLogHandler implements PLog.Config.IRecordLogHandler {
+
+    public static final byte RECORD_TAG = 1;
+    public static final byte RECORD_FORMAT = 2;
+    public static final byte RECORD_LINE = 3;
+    public static final byte RECORD_EVENT = 4;
+
+    public static final byte ARG_NULL = 0;
+    public static final byte ARG_INT = 1;
+    public static final byte ARG_LONG = 2;
+    public static final byte ARG_FLOAT = 3;
+    public static final byte ARG_DOUBLE = 4;
+    public static final byte ARG_FALSE = 5;
+    public static final byte ARG_TRUE = 6;
+    public static final byte ARG_CHAR = 7;
+    public static final byte ARG_STRING = 8;
+
+    private static final String DEFAULT_PREFIX = "plogb";
+
+    private final MappedSegmentFile mSegmentFile;
+
+    private final Map<String, Integer> mTagIds = new HashMap<>();
+
+    private final Map<String, Integer> mFormatIds = new HashMap<>();
+
+    private byte[] mBuffer = new byte[512];
+
+    private int[] mKeyIds = new int[8];
+
+    private int mPosition;
+
+    private long mLastTime;
+
+    private boolean isBroken;
+
+    public BinaryLogHandler(File directory) {
+        this(directory, FileLogHandler.DEFAULT_SEGMENT_SIZE, FileLogHandler.DEFAULT_MAX_SEGMENT_COUNT);
+    }
+
+    /**
+     * @param segmentSize     the size of one segment file in bytes, a longer line is cut
+     * @param maxSegmentCount the oldest segments over this count are deleted
+     */
+    public BinaryLogHandler(File directory, int segmentSize, int maxSegmentCount) {
+        this(directory, segmentSize, maxSegmentCount, false, 0);
+    }
+
+    /**
+     * @param segmentSize            the size of one segment file in bytes, a longer line is cut
+     * @param maxSegmentCount        the oldest segments over this count are deleted
+     * @param compressClosedSegments gzip the closed segments on a background thread
+     * @param maxTotalSize           the oldest segments are deleted while all of them take more bytes, 0 for no limit
+     */
+    public BinaryLogHandler(File directory, int segmentSize, int maxSegmentCount, boolean compressClosedSegments, long maxTotalSize) {
+        mSegmentFile = new MappedSegmentFile(directory, DEFAULT_PREFIX, segmentSize, maxSegmentCount, MappedSegmentFile.FORMAT_BINARY,
+            compressClosedSegments, maxTotalSize);
+    }
+
+    @Override
+    public void onLog(int level, String tag, String message) {
+        // not called for a IRecordLogHandler, kept for a direct call
+        final LogRecord record = new LogRecord();
+        record.set(level, tag, message, null);
+        onLog(record);
+    }
+
+    @Override
+    public synchronized void onLog(LogRecord record) {
+        if (isBroken) {
+            return;
+        }
+        try {
+            if (!mSegmentFile.isOpen()) {
+                mSegmentFile.open();
+                // the tables of a reopened segment are lost, start a new one
+                if (!mSegmentFile.isEmpty()) {
+                    mSegmentFile.rotate();
+                }
+                resetTables();
+            }
+            encode(record, false);
+            if (!mSegmentFile.fits(mPosition)) {
+                if (!mSegmentFile.isEmpty()) {
+                    mSegmentFile.rotate();
+                    resetTables();
+                    encode(record, false);
+                }
+                if (!mSegmentFile.fits(mPosition)) {
+                    // too long for a whole segment, keep the start of the tag and of the message
+                    resetTables();
+                    encode(record, true);
+                    if (!mSegmentFile.fits(mPosition)) {
+                        // the segment is too small even for the cut line, drop it with the table records it added
+                        resetTables();
+                        return;
+                    }
+                }
+            }
+            mSegmentFile.write(mBuffer, 0, mPosition);
+        } catch (IOException e) {
+            isBroken = true;
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void flush() {
+        mSegmentFile.force();
+    }
+
+    public synchronized void close() {
+        mSegmentFile.close();
+    }
+
+    /**
+     * stream all segments, the oldest first, as one gzip for a bug report, the log-decoder tool reads it,
+     * the lines logged during the export may be left out, the stream is not closed
+     */
+    public void export(OutputStream outputStream) throws IOException {
+        final int currentIndex;
+        final int currentWriteOffset;
+        synchronized (this) {
+            currentIndex = mSegmentFile.isOpen() ? mSegmentFile.getSegmentIndex() : -1;
+            currentWriteOffset = mSegmentFile.getWriteOffset();
+        }
+        mSegmentFile.export(outputStream, currentIndex, currentWriteOffset);
+    }
+
+    private void resetTables() {
+        mTagIds.clear();
+        mFormatIds.clear();
+        mLastTime = mSegmentFile.getCreatedTime();
+    }
+
+    /**
+     * encode the line and the missing table records into {@link #mBuffer}, up to {@link #mPosition}
+     *
+     * @param cut write the start of the tag and of the formatted message only, without the throwable, an eighth
+     *            of the segment each, so the line takes at most 3/4 of it
+     */
+    private void encode(LogRecord record, boolean cut) {
+        mPosition = 0;
+        if (record.getFieldCount() > 0 && !cut) {
+            encodeEvent(record);
+            return;
+        }
+        final int maxChars = mSegmentFile.getCapacity() / 8 - 16;
+        String tag = record.tag == null ? "null" : record.tag;
+        if (cut && tag.length() > maxChars) {
+            tag = tag.substring(0, Math.max(0, maxChars));
+        }
+        final int tagId = tableId(mTagIds, RECORD_TAG, tag);
+        final String format = cut ? null : record.format;
+        final int formatId = format == null ? 0 : tableId(mFormatIds, RECORD_FORMAT, format);
+
+        ensure(1 + 10 + 1 + 5 + 5);
+        mBuffer[mPosition++] = RECORD_LINE;
+        putZigZag(record.time - mLastTime);
+        mBuffer[mPosition++] = (byte) record.level;
+        putVarint(tagId);
+        putVarint(formatId);
+        if (formatId == 0) {
+            String message = record.getMessage();
+            if (message == null) {
+                message = "null";
+            }
+            if (cut) {
+                if (message.length() > maxChars) {
+                    message = message.substring(0, Math.max(0, maxChars));
+                }
+            }
+            putString(message);
+        } else {
+            final int count = record.getArgumentCount();
+            ensure(5);
+            putVarint(count);
+            for (int i = 0; i < count; i++) {
+                putArgument(record.getArgument(i));
+            }
+        }
+        ensure(1);
+        if (record.throwable != null && !cut) {
+            mBuffer[mPosition++] = 1;
+            putString(Log.getStackTraceString(record.throwable));
+        } else {
+            mBuffer[mPosition++] = 0;
+        }
+        mLastTime = record.time;
+    }
+
+    private void encodeEvent(LogRecord record) {
+        final String tag = record.tag == null ? "null" : record.tag;
+        final int tagId = tableId(mTagIds, RECORD_TAG, tag);
+        final int fieldCount = record.getFieldCount();
+        if (mKeyIds.length < fieldCount) {
+            mKeyIds = new int[Math.max(fieldCount, mKeyIds.length * 2)];
+        }
+        for (int i = 0; i < fieldCount; i++) {
+            mKeyIds[i] = tableId(mFormatIds, RECORD_FORMAT, record.getFieldKey(i));
+        }
+
+        ensure(1 + 10 + 1 + 5);
+        mBuffer[mPosition++] = RECORD_EVENT;
+        putZigZag(record.time - mLastTime);
+        mBuffer[mPosition++] = (byte) record.level;
+        putVarint(tagId);
+        putArgument(record.getRawMessage());
+        ensure(5);
+        putVarint(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            ensure(5 + 1 + 10);
+            putVarint(mKeyIds[i]);
+            switch (record.getFieldType(i)) {
+                case LogRecord.FIELD_LONG:
+                    mBuffer[mPosition++] = ARG_LONG;
+                    putZigZag(record.getLongField(i));
+                    break;
+                case LogRecord.FIELD_DOUBLE:
+                    mBuffer[mPosition++] = ARG_DOUBLE;
+                    putFixed(Double.doubleToRawLongBits(record.getDoubleField(i)), 8);
+                    break;
+                case LogRecord.FIELD_BOOLEAN:
+                    mBuffer[mPosition++] = record.getBooleanField(i) ? ARG_TRUE : ARG_FALSE;
+                    break;
+                default:
+                    putArgument(record.getObjectField(i));
+                    break;
+            }
+        }
+        mLastTime = record.time;
+    }
+
+    private int tableId(Map<String, Integer> table, byte recordType, String value) {
+        final Integer id = table.get(value);
+        if (id != null) {
+            return id;
+        }
+        final int newId = table.size() + 1;
+        table.put(value, newId);
+        ensure(1 + 5);
+        mBuffer[mPosition++] = recordType;
+        putVarint(newId);
+        putString(value);
+        return newId;
+    }
+
+    private void putArgument(Object argument) {
+        ensure(1 + 10);
+        if (argument == null) {
+            mBuffer[mPosition++] = ARG_NULL;
+        } else if (argument instanceof Integer || argument instanceof Short || argument instanceof Byte) {
+            mBuffer[mPosition++] = ARG_INT;
+            putZigZag(((Number) argument).intValue());
+        } else if (argument instanceof Long) {
+            mBuffer[mPosition++] = ARG_LONG;
+            putZigZag((Long) argument);
+        } else if (argument instanceof Float) {
+            mBuffer[mPosition++] = ARG_FLOAT;
+            putFixed(Float.floatToIntBits((Float) argument), 4);
+        } else if (argument instanceof Double) {
+            mBuffer[mPosition++] = ARG_DOUBLE;
+            putFixed(Double.doubleToLongBits((Double) argument), 8);
+        } else if (argument instanceof Boolean) {
+            mBuffer[mPosition++] = (Boolean) argument ? ARG_TRUE : ARG_FALSE;
+        } else if (argument instanceof Character) {
+            mBuffer[mPosition++] = ARG_CHAR;
+            putVarint((Character) argument);
+        } else {
+            mBuffer[mPosition++] = ARG_STRING;
+            putString(argument instanceof String ? (String) argument : String.valueOf(argument));
+        }
+    }
+
+    private void putString(String value) {
+        final int length = utf8Length(value);
+        ensure(5 + length);
+        putVarint(length);
+        mPosition = FileLogHandler.putUtf8(mBuffer, mPosition, value);
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7f) != 0) {
+            mBuffer[mPosition++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        mBuffer[mPosition++] = (byte) value;
+    }
+
+    private void putZigZag(long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7fL) != 0) {
+            mBuffer[mPosition++] = (byte) ((zigZag & 0x7f) | 0x80);
+            zigZag >>>= 7;
+        }
+        mBuffer[mPosition++] = (byte) zigZag;
+    }
+
+    private void putFixed(long value, int byteCount) {
+        for (int shift = (byteCount - 1) * 8; shift >= 0; shift -= 8) {
+            mBuffer[mPosition++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void ensure(int length) {
+        if (mPosition + length > mBuffer.length) {
+            final byte[] buffer = new byte[Math.max(mPosition + length, mBuffer.length * 2)];
+            System.arraycopy(mBuffer, 0, buffer, 0, mPosition);
+            mBuffer = buffer;
+        }
+    }
+
+    /**
+     * the length {@link FileLogHandler#putUtf8(byte[], int, String)} writes
+     */
+    private static int utf8Length(String value) {
+        final int length = value.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        return utf8Length;
+    }
+}
@@ -1,12 +1,191 @@
 package com.pafc.library.log;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Calendar;
 
-public class FileLogHandler implements PLog.ILogHandler {
+/**
+ * <pre>
+ * log handler writing text lines to memory mapped segments, see {@link MappedSegmentFile}
+ * 1. a line is "MM-dd HH:mm:ss.SSS L/tag: message\n" in UTF-8
+ * 2. the line is encoded by hand into a reused buffer, nothing is allocated per line
+ * 3. the segments are opened on the first line, so creating the handler does no io
+ * 4. an io error is printed once and the handler drops the following lines
+ * </pre>
+ * use it with {@link PLog#startAsyncLog(int, int)} to keep the writes off the calling threads
+ */
+public class FileLogHandler implements PLog.Config.ILogHandler {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENT_COUNT = 5;
+
+    private static final String DEFAULT_PREFIX = "plog";
+
+    private static final char[] LEVEL_CHARS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+    private final MappedSegmentFile mSegmentFile;
+
+    private byte[] mLineBuffer = new byte[512];
+
+    private final Calendar mCalendar = Calendar.getInstance();
+
+    // "MM-dd HH:mm:ss" of mLastSecond
+    private final byte[] mSecondBytes = new byte[14];
+
+    private long mLastSecond = -1;
+
+    private boolean isBroken;
+
+    public FileLogHandler(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENT_COUNT);
+    }
+
+    /**
+     * @param segmentSize     the size of one segment file in bytes, a longer line is cut
+     * @param maxSegmentCount the oldest segments over this count are deleted
+     */
+    public FileLogHandler(File directory, int segmentSize, int maxSegmentCount) {
+        this(directory, segmentSize, maxSegmentCount, false, 0);
+    }
+
+    /**
+     * @param segmentSize            the size of one segment file in bytes, a longer line is cut
+     * @param maxSegmentCount        the oldest segments over this count are deleted
+     * @param compressClosedSegments gzip the closed segments on a background thread
+     * @param maxTotalSize           the oldest segments are deleted while all of them take more bytes, 0 for no limit
+     */
+    public FileLogHandler(File directory, int segmentSize, int maxSegmentCount, boolean compressClosedSegments, long maxTotalSize) {
+        mSegmentFile = new MappedSegmentFile(directory, DEFAULT_PREFIX, segmentSize, maxSegmentCount, MappedSegmentFile.FORMAT_TEXT,
+            compressClosedSegments, maxTotalSize);
+    }
 
     @Override
-    public void onLog(int level, String tag, String message) {
+    public synchronized void onLog(int level, String tag, String message) {
+        if (isBroken) {
+            return;
+        }
+        try {
+            if (!mSegmentFile.isOpen()) {
+                mSegmentFile.open();
+            }
+            int length = encodeLine(level, tag == null ? "null" : tag, message == null ? "null" : message);
+            if (!mSegmentFile.fits(length)) {
+                if (length > mSegmentFile.getCapacity()) {
+                    length = mSegmentFile.getCapacity();
+                    mLineBuffer[length - 1] = '\n';
+                }
+                if (!mSegmentFile.isEmpty() || !mSegmentFile.fits(length)) {
+                    mSegmentFile.rotate();
+                }
+            }
+            mSegmentFile.write(mLineBuffer, 0, length);
+        } catch (IOException e) {
+            isBroken = true;
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * write the mapped pages to the disk, only needed to survive a power loss, a killed process keeps its lines anyway
+     */
+    public synchronized void flush() {
+        mSegmentFile.force();
+    }
+
+    public synchronized void close() {
+        mSegmentFile.close();
+    }
+
+    /**
+     * stream all segments, the oldest first, as one gzip for a bug report, the log-decoder tool reads it,
+     * the lines logged during the export may be left out, the stream is not closed
+     */
+    public void export(OutputStream outputStream) throws IOException {
+        final int currentIndex;
+        final int currentWriteOffset;
+        synchronized (this) {
+            currentIndex = mSegmentFile.isOpen() ? mSegmentFile.getSegmentIndex() : -1;
+            currentWriteOffset = mSegmentFile.getWriteOffset();
+        }
+        mSegmentFile.export(outputStream, currentIndex, currentWriteOffset);
+    }
 
+    /**
+     * @return the length of the line in {@link #mLineBuffer}
+     */
+    private int encodeLine(int level, String tag, String message) {
+        // 3 bytes per char is the worst case, a surrogate pair takes 4 bytes for 2 chars
+        final int maxLength = 24 + (tag.length() + message.length()) * 3;
+        if (mLineBuffer.length < maxLength) {
+            mLineBuffer = new byte[Math.max(maxLength, mLineBuffer.length * 2)];
+        }
+        final byte[] buffer = mLineBuffer;
+
+        final long now = System.currentTimeMillis();
+        final long second = now / 1000;
+        if (second != mLastSecond) {
+            mLastSecond = second;
+            mCalendar.setTimeInMillis(now);
+            putTwoDigits(mSecondBytes, 0, mCalendar.get(Calendar.MONTH) + 1);
+            mSecondBytes[2] = '-';
+            putTwoDigits(mSecondBytes, 3, mCalendar.get(Calendar.DAY_OF_MONTH));
+            mSecondBytes[5] = ' ';
+            putTwoDigits(mSecondBytes, 6, mCalendar.get(Calendar.HOUR_OF_DAY));
+            mSecondBytes[8] = ':';
+            putTwoDigits(mSecondBytes, 9, mCalendar.get(Calendar.MINUTE));
+            mSecondBytes[11] = ':';
+            putTwoDigits(mSecondBytes, 12, mCalendar.get(Calendar.SECOND));
+        }
+        System.arraycopy(mSecondBytes, 0, buffer, 0, mSecondBytes.length);
+        int position = mSecondBytes.length;
+        final int millis = (int) (now % 1000);
+        buffer[position++] = '.';
+        buffer[position++] = (byte) ('0' + millis / 100);
+        buffer[position++] = (byte) ('0' + millis / 10 % 10);
+        buffer[position++] = (byte) ('0' + millis % 10);
+        buffer[position++] = ' ';
+        buffer[position++] = (byte) (level >= 0 && level < LEVEL_CHARS.length ? LEVEL_CHARS[level] : '?');
+        buffer[position++] = '/';
+        position = putUtf8(buffer, position, tag);
+        buffer[position++] = ':';
+        buffer[position++] = ' ';
+        position = putUtf8(buffer, position, message);
+        buffer[position++] = '\n';
+        return position;
     }
 
+    private static void putTwoDigits(byte[] buffer, int position, int value) {
+        buffer[position] = (byte) ('0' + value / 10);
+        buffer[position + 1] = (byte) ('0' + value % 10);
+    }
 
+    /**
+     * encode without String.getBytes, which allocates, a lone surrogate becomes '?'
+     */
+    static int putUtf8(byte[] buffer, int position, String text) {
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return position;
+    }
 }
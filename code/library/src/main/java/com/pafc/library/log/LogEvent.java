@@ -0,0 +1,89 @@
+package com.pafc.library.log;
+
+/**
+ * <pre>
+ * a structured log line, from {@link PLog#event(int, String)}
+ * PLog.event(PLog.LEVEL_INFO, TAG).message("sync finished").put("items", count).put("ms", elapsed).log();
+ * 1. the builders are pooled per thread, the primitive values are kept unboxed, nothing is allocated per event
+ * 2. below the level of all configs, event() returns a disabled builder, its put calls do nothing
+ * 3. the {@link PLog.Config.IRecordLogHandler}s read the fields from the {@link LogRecord}, the other handlers get
+ *    "message key=value ..."
+ * 4. {@link #log()} must be called, it gives the builder back to the pool, do not keep the builder after it
+ * </pre>
+ */
+public final class LogEvent {
+
+    static final LogEvent DISABLED = new LogEvent(null);
+
+    // null for DISABLED
+    private final LogRecord mRecord;
+
+    boolean isInUse;
+
+    LogEvent(LogRecord record) {
+        mRecord = record;
+    }
+
+    void start(int level, String tag) {
+        isInUse = true;
+        mRecord.set(level, tag, null, null);
+    }
+
+    /**
+     * the text of the event, before the fields
+     */
+    public LogEvent message(String message) {
+        if (mRecord != null) {
+            mRecord.message = message;
+        }
+        return this;
+    }
+
+    public LogEvent put(String key, long value) {
+        if (mRecord != null) {
+            mRecord.addField(key, LogRecord.FIELD_LONG, value, null);
+        }
+        return this;
+    }
+
+    public LogEvent put(String key, double value) {
+        if (mRecord != null) {
+            mRecord.addField(key, LogRecord.FIELD_DOUBLE, Double.doubleToRawLongBits(value), null);
+        }
+        return this;
+    }
+
+    public LogEvent put(String key, boolean value) {
+        if (mRecord != null) {
+            mRecord.addField(key, LogRecord.FIELD_BOOLEAN, value ? 1 : 0, null);
+        }
+        return this;
+    }
+
+    public LogEvent put(String key, String value) {
+        if (mRecord != null) {
+            mRecord.addField(key, LogRecord.FIELD_OBJECT, 0, value);
+        }
+        return this;
+    }
+
+    /**
+     * the object is kept, not converted, in the async mode it is read on the log thread, it should not be changed
+     */
+    public LogEvent put(String key, Object value) {
+        if (mRecord != null) {
+            mRecord.addField(key, LogRecord.FIELD_OBJECT, 0, value);
+        }
+        return this;
+    }
+
+    public void log() {
+        if (mRecord != null && isInUse) {
+            try {
+                PLog.post(mRecord);
+            } finally {
+                isInUse = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.pafc.library.log;
+
+import java.util.Formatter;
+
+/**
+ * <pre>
+ * formats the xF messages of {@link PLog} with one reused builder per thread
+ * 1. %s, %d, %% and %n are appended directly, %d without boxing to a string first
+ * 2. any other specifier (flags, width, precision, other conversions) goes to a {@link Formatter} writing into
+ *    the same builder, so the output and the exceptions are the ones of String.format
+ * </pre>
+ */
+final class LogFormatter {
+
+    // drop the builder when a huge message grew it, instead of keeping the memory forever
+    private static final int MAX_KEPT_CAPACITY = 8 * 1024;
+
+    private static final ThreadLocal<LogFormatter> sFormatters = new ThreadLocal<LogFormatter>() {
+        @Override
+        protected LogFormatter initialValue() {
+            return new LogFormatter();
+        }
+    };
+
+    private StringBuilder mBuilder = new StringBuilder(256);
+
+    private Formatter mFormatter;
+
+    // an argument's toString() may log again on this thread
+    private boolean isBusy;
+
+    private LogFormatter() {
+    }
+
+    static String format(String fmt, int argCount, Object arg1, Object arg2, Object arg3, Object arg4, Object[] args) {
+        LogFormatter formatter = sFormatters.get();
+        if (formatter.isBusy) {
+            formatter = new LogFormatter();
+        }
+        formatter.isBusy = true;
+        try {
+            return formatter.formatInternal(fmt, argCount, arg1, arg2, arg3, arg4, args);
+        } finally {
+            formatter.isBusy = false;
+        }
+    }
+
+    private String formatInternal(String fmt, int argCount, Object arg1, Object arg2, Object arg3, Object arg4, Object[] args) {
+        if (mBuilder.capacity() > MAX_KEPT_CAPACITY) {
+            mBuilder = new StringBuilder(256);
+            mFormatter = null;
+        }
+        final StringBuilder builder = mBuilder;
+        builder.setLength(0);
+
+        if (fmt == null) {
+            // the Formatter throws in this case, like String.format
+            return formatSlow(fmt, argCount, arg1, arg2, arg3, arg4, args);
+        }
+
+        final int length = fmt.length();
+        int argIndex = 0;
+        int start = 0;
+        int percent;
+        while ((percent = fmt.indexOf('%', start)) >= 0) {
+            if (percent + 1 >= length) {
+                return formatSlow(fmt, argCount, arg1, arg2, arg3, arg4, args);
+            }
+            builder.append(fmt, start, percent);
+            final char conversion = fmt.charAt(percent + 1);
+            if (conversion == '%') {
+                builder.append('%');
+            } else if (conversion == 'n') {
+                builder.append(System.getProperty("line.separator"));
+            } else if (conversion == 's' || conversion == 'd') {
+                final int count = args != null ? args.length : argCount;
+                if (argIndex >= count) {
+                    return formatSlow(fmt, argCount, arg1, arg2, arg3, arg4, args);
+                }
+                final Object arg = args != null ? args[argIndex] : argument(argIndex, arg1, arg2, arg3, arg4);
+                argIndex++;
+                if (conversion == 's' ? !appendString(builder, arg) : !appendDecimal(builder, arg)) {
+                    return formatSlow(fmt, argCount, arg1, arg2, arg3, arg4, args);
+                }
+            } else {
+                return formatSlow(fmt, argCount, arg1, arg2, arg3, arg4, args);
+            }
+            start = percent + 2;
+        }
+        builder.append(fmt, start, length);
+        return builder.toString();
+    }
+
+    private String formatSlow(String fmt, int argCount, Object arg1, Object arg2, Object arg3, Object arg4, Object[] args) {
+        final StringBuilder builder = mBuilder;
+        builder.setLength(0);
+        if (mFormatter == null) {
+            mFormatter = new Formatter(builder);
+        }
+        mFormatter.format(fmt, toArray(argCount, arg1, arg2, arg3, arg4, args));
+        return builder.toString();
+    }
+
+    private static boolean appendString(StringBuilder builder, Object arg) {
+        if (arg instanceof String || arg == null) {
+            builder.append((String) arg);
+        } else if (arg instanceof java.util.Formattable) {
+            return false;
+        } else if (arg instanceof Integer) {
+            builder.append(((Integer) arg).intValue());
+        } else if (arg instanceof Long) {
+            builder.append(((Long) arg).longValue());
+        } else if (arg instanceof Boolean) {
+            builder.append(((Boolean) arg).booleanValue());
+        } else {
+            builder.append(arg);
+        }
+        return true;
+    }
+
+    private static boolean appendDecimal(StringBuilder builder, Object arg) {
+        if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            builder.append(((Number) arg).intValue());
+        } else if (arg instanceof Long) {
+            builder.append(((Long) arg).longValue());
+        } else if (arg == null) {
+            builder.append("null");
+        } else {
+            // BigInteger or a wrong type, the Formatter handles or rejects it
+            return false;
+        }
+        return true;
+    }
+
+    private static Object argument(int index, Object arg1, Object arg2, Object arg3, Object arg4) {
+        switch (index) {
+            case 0:
+                return arg1;
+            case 1:
+                return arg2;
+            case 2:
+                return arg3;
+            default:
+                return arg4;
+        }
+    }
+
+    private static Object[] toArray(int argCount, Object arg1, Object arg2, Object arg3, Object arg4, Object[] args) {
+        if (args != null) {
+            return args;
+        }
+        final Object[] array = new Object[argCount];
+        for (int i = 0; i < argCount; i++) {
+            array[i] = argument(i, arg1, arg2, arg3, arg4);
+        }
+        return array;
+    }
+}
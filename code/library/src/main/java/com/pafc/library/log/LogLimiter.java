@@ -0,0 +1,184 @@
+package com.pafc.library.log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * the rate limits and the sampling of one {@link PLog.Config}, lock free
+ * 1. sampling keeps a line with the sample rate probability
+ * 2. the tag limit and the format limit are token buckets, kept as the theoretical arrival time of the next line
+ *    (GCRA), so taking a token is one compare and set
+ * 3. the format limit is per fmt of the xF lines, by value: the calls with the same fmt share one bucket, whatever
+ *    their class, the other lines have no format limit
+ * 4. the suppressed lines are counted, {@link #pollSummary(long)} returns a summary line once per interval
+ * </pre>
+ */
+final class LogLimiter {
+
+    // the tags over this count share one bucket
+    private static final int MAX_TAG_BUCKETS = 1024;
+
+    private static final int FORMAT_TABLE_SIZE = 512;
+
+    private static final int MAX_SUMMARY_TAGS = 8;
+
+    private static final String OVERFLOW_KEY = "*";
+
+    // in us, 0 for no limit
+    private final long mTagInterval;
+    private final long mTagTolerance;
+    private final long mFormatInterval;
+    private final long mFormatTolerance;
+
+    private final float mSampleRate;
+
+    // in ms, 0 for no summary
+    private final long mSummaryInterval;
+
+    private final ConcurrentHashMap<String, Bucket> mTagBuckets = new ConcurrentHashMap<>();
+
+    private final Bucket mOverflowTagBucket = new Bucket(OVERFLOW_KEY);
+
+    // direct mapped by the hash of the fmt, a racy slot write only restarts the limit of a fmt
+    private final Bucket[] mFormatBuckets = new Bucket[FORMAT_TABLE_SIZE];
+
+    private final AtomicLong mSuppressedCount = new AtomicLong();
+
+    private final AtomicLong mNextSummaryTime = new AtomicLong();
+
+    /**
+     * @param tagRate          lines per second per tag, 0 for no limit
+     * @param formatRate       lines per second per fmt, 0 for no limit
+     * @param sampleRate       the kept part of the lines, 1 to keep all
+     * @param summaryInterval  ms between two summaries, 0 for no summary
+     */
+    LogLimiter(int tagRate, int tagBurst, int formatRate, int formatBurst, float sampleRate, long summaryInterval) {
+        mTagInterval = tagRate > 0 ? 1000000L / tagRate : 0;
+        mTagTolerance = mTagInterval * (Math.max(1, tagBurst) - 1);
+        mFormatInterval = formatRate > 0 ? 1000000L / formatRate : 0;
+        mFormatTolerance = mFormatInterval * (Math.max(1, formatBurst) - 1);
+        mSampleRate = sampleRate;
+        mSummaryInterval = summaryInterval;
+    }
+
+    /**
+     * @return false if the line is suppressed
+     */
+    boolean accept(LogRecord record) {
+        if (mSampleRate < 1 && record.nextRandom() >= mSampleRate) {
+            mSuppressedCount.incrementAndGet();
+            return false;
+        }
+        final long now = record.time * 1000;
+        if (mTagInterval > 0) {
+            final Bucket bucket = tagBucket(record.tag);
+            if (!bucket.tryAcquire(now, mTagInterval, mTagTolerance)) {
+                bucket.suppressedCount.incrementAndGet();
+                mSuppressedCount.incrementAndGet();
+                return false;
+            }
+        }
+        if (mFormatInterval > 0) {
+            // a message is mostly built per line, it would get a new bucket every time
+            final String format = record.format;
+            if (format != null && !formatBucket(format).tryAcquire(now, mFormatInterval, mFormatTolerance)) {
+                mSuppressedCount.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param now the time of the current line, in ms
+     * @return the summary of the suppressed lines when the interval passed and some were suppressed, or null
+     */
+    String pollSummary(long now) {
+        if (mSummaryInterval <= 0) {
+            return null;
+        }
+        final long nextSummaryTime = mNextSummaryTime.get();
+        if (now < nextSummaryTime || !mNextSummaryTime.compareAndSet(nextSummaryTime, now + mSummaryInterval)) {
+            return null;
+        }
+        final long suppressedCount = mSuppressedCount.getAndSet(0);
+        if (suppressedCount == 0) {
+            return null;
+        }
+        final StringBuilder builder = new StringBuilder();
+        builder.append("suppressed ").append(suppressedCount).append(" lines");
+        int tagCount = 0;
+        for (Bucket bucket : mTagBuckets.values()) {
+            tagCount = appendTag(builder, bucket, tagCount);
+        }
+        appendTag(builder, mOverflowTagBucket, tagCount);
+        return builder.toString();
+    }
+
+    private static int appendTag(StringBuilder builder, Bucket bucket, int tagCount) {
+        final long count = bucket.suppressedCount.getAndSet(0);
+        if (count > 0) {
+            if (tagCount < MAX_SUMMARY_TAGS) {
+                builder.append(tagCount == 0 ? ", " : "; ").append(bucket.key).append(' ').append(count);
+            }
+            tagCount++;
+        }
+        return tagCount;
+    }
+
+    private Bucket tagBucket(String tag) {
+        Bucket bucket = mTagBuckets.get(tag);
+        if (bucket == null) {
+            if (mTagBuckets.size() >= MAX_TAG_BUCKETS) {
+                return mOverflowTagBucket;
+            }
+            final Bucket newBucket = new Bucket(tag);
+            bucket = mTagBuckets.putIfAbsent(tag, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        return bucket;
+    }
+
+    private Bucket formatBucket(String format) {
+        final int index = (format.hashCode() & 0x7fffffff) % FORMAT_TABLE_SIZE;
+        Bucket bucket = mFormatBuckets[index];
+        if (bucket == null || bucket.key != format && !bucket.key.equals(format)) {
+            bucket = new Bucket(format);
+            mFormatBuckets[index] = bucket;
+        }
+        return bucket;
+    }
+
+    private static final class Bucket {
+
+        final Object key;
+
+        // the theoretical arrival time of the next line, in us
+        final AtomicLong theoreticalTime = new AtomicLong(Long.MIN_VALUE / 2);
+
+        final AtomicLong suppressedCount = new AtomicLong();
+
+        Bucket(Object key) {
+            this.key = key;
+        }
+
+        /**
+         * @param interval  us per line
+         * @param tolerance how early a line may come, the burst
+         */
+        boolean tryAcquire(long now, long interval, long tolerance) {
+            for (; ; ) {
+                final long time = theoreticalTime.get();
+                if (now < time - tolerance) {
+                    return false;
+                }
+                if (theoreticalTime.compareAndSet(time, Math.max(time, now) + interval)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.pafc.library.log;
+
+/**
+ * <pre>
+ * one log line on its way to the log handlers, see {@link PLog.Config.IRecordLogHandler}
+ * 1. the xF lines keep the fmt and the raw arguments, {@link #getMessage()} formats them on the first call only
+ * 2. the events of {@link PLog#event(int, String)} keep their fields unboxed, read them with {@link #getFieldCount()}
+ *    and the getters by index, {@link #getMessage()} appends them as "key=value" on the first call only
+ * 3. the instances are reused, per thread in the sync mode and per slot of the ring in the async mode,
+ *    so a handler must copy what it needs before onLog returns
+ * </pre>
+ */
+public final class LogRecord {
+
+    public static final int FIELD_LONG = 0;
+    public static final int FIELD_DOUBLE = 1;
+    public static final int FIELD_BOOLEAN = 2;
+    public static final int FIELD_OBJECT = 3;
+
+    private static final int INITIAL_FIELD_CAPACITY = 8;
+
+    long time;
+    int level;
+    String tag;
+    String message;
+    String format;
+    int argumentCount;
+    Object argument1;
+    Object argument2;
+    Object argument3;
+    Object argument4;
+    Object[] arguments;
+    Throwable throwable;
+
+    // the event fields, the values of the primitive ones are in mFieldValues, a double as its bits
+    private int mFieldCount;
+    private String[] mFieldKeys;
+    private byte[] mFieldTypes;
+    private long[] mFieldValues;
+    private Object[] mFieldObjects;
+
+    // the message given to the plain handlers, formatted or with the fields
+    private String mText;
+
+    // in use by a dispatch on its thread
+    boolean isBusy;
+
+    // xorshift state for the sampling, a record is used by one thread at a time
+    private int mRandom = ((int) System.nanoTime() ^ System.identityHashCode(this)) | 1;
+
+    LogRecord() {
+    }
+
+    /**
+     * @return the time of the log call, in ms
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * @return the message, the xF lines are formatted here, the fields of an event are appended here,
+     * the result is kept for the next handlers
+     */
+    public String getMessage() {
+        if (mText == null) {
+            if (format != null) {
+                mText = LogFormatter.format(format, argumentCount, argument1, argument2, argument3, argument4, arguments);
+            } else if (mFieldCount > 0) {
+                mText = appendFields(message == null ? new StringBuilder() : new StringBuilder(message).append(' '));
+            } else {
+                mText = message;
+            }
+        }
+        return mText;
+    }
+
+    /**
+     * @return the message of an event without its fields, the message of a plain line, null for a xF line
+     */
+    public String getRawMessage() {
+        return message;
+    }
+
+    public int getFieldCount() {
+        return mFieldCount;
+    }
+
+    public String getFieldKey(int index) {
+        checkField(index);
+        return mFieldKeys[index];
+    }
+
+    /**
+     * @return {@link #FIELD_LONG}, {@link #FIELD_DOUBLE}, {@link #FIELD_BOOLEAN} or {@link #FIELD_OBJECT}
+     */
+    public int getFieldType(int index) {
+        checkField(index);
+        return mFieldTypes[index];
+    }
+
+    public long getLongField(int index) {
+        checkField(index);
+        return mFieldValues[index];
+    }
+
+    public double getDoubleField(int index) {
+        checkField(index);
+        return Double.longBitsToDouble(mFieldValues[index]);
+    }
+
+    public boolean getBooleanField(int index) {
+        checkField(index);
+        return mFieldValues[index] != 0;
+    }
+
+    /**
+     * @return the value of a {@link #FIELD_OBJECT} field, a String or any object given to the event
+     */
+    public Object getObjectField(int index) {
+        checkField(index);
+        return mFieldObjects[index];
+    }
+
+    private void checkField(int index) {
+        if (index < 0 || index >= mFieldCount) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + mFieldCount);
+        }
+    }
+
+    private String appendFields(StringBuilder builder) {
+        for (int i = 0; i < mFieldCount; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(mFieldKeys[i]).append('=');
+            switch (mFieldTypes[i]) {
+                case FIELD_LONG:
+                    builder.append(mFieldValues[i]);
+                    break;
+                case FIELD_DOUBLE:
+                    builder.append(Double.longBitsToDouble(mFieldValues[i]));
+                    break;
+                case FIELD_BOOLEAN:
+                    builder.append(mFieldValues[i] != 0);
+                    break;
+                default:
+                    builder.append(mFieldObjects[i]);
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    void addField(String key, int type, long value, Object object) {
+        if (mFieldKeys == null || mFieldCount == mFieldKeys.length) {
+            ensureFieldCapacity(mFieldKeys == null ? INITIAL_FIELD_CAPACITY : mFieldKeys.length * 2);
+        }
+        mFieldKeys[mFieldCount] = key;
+        mFieldTypes[mFieldCount] = (byte) type;
+        mFieldValues[mFieldCount] = value;
+        mFieldObjects[mFieldCount] = object;
+        mFieldCount++;
+    }
+
+    private void ensureFieldCapacity(int capacity) {
+        if (mFieldKeys != null && mFieldKeys.length >= capacity) {
+            return;
+        }
+        final String[] keys = new String[capacity];
+        final byte[] types = new byte[capacity];
+        final long[] values = new long[capacity];
+        final Object[] objects = new Object[capacity];
+        if (mFieldKeys != null) {
+            System.arraycopy(mFieldKeys, 0, keys, 0, mFieldCount);
+            System.arraycopy(mFieldTypes, 0, types, 0, mFieldCount);
+            System.arraycopy(mFieldValues, 0, values, 0, mFieldCount);
+            System.arraycopy(mFieldObjects, 0, objects, 0, mFieldCount);
+        }
+        mFieldKeys = keys;
+        mFieldTypes = types;
+        mFieldValues = values;
+        mFieldObjects = objects;
+    }
+
+    /**
+     * @return the fmt of a xF line, null for the other lines
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    public int getArgumentCount() {
+        return arguments != null ? arguments.length : argumentCount;
+    }
+
+    public Object getArgument(int index) {
+        if (index < 0 || index >= getArgumentCount()) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + getArgumentCount());
+        }
+        if (arguments != null) {
+            return arguments[index];
+        }
+        switch (index) {
+            case 0:
+                return argument1;
+            case 1:
+                return argument2;
+            case 2:
+                return argument3;
+            default:
+                return argument4;
+        }
+    }
+
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * @return a pseudo random number in [0, 1)
+     */
+    float nextRandom() {
+        int random = mRandom;
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        mRandom = random;
+        return (random >>> 8) / (float) (1 << 24);
+    }
+
+    void set(int level, String tag, String message, Throwable throwable) {
+        this.time = System.currentTimeMillis();
+        this.level = level;
+        this.tag = tag;
+        this.message = message;
+        this.format = null;
+        this.argumentCount = 0;
+        this.argument1 = null;
+        this.argument2 = null;
+        this.argument3 = null;
+        this.argument4 = null;
+        this.arguments = null;
+        this.throwable = throwable;
+        this.mText = null;
+        clearFields();
+    }
+
+    void setFormat(int level, String tag, String format, int argumentCount,
+                   Object argument1, Object argument2, Object argument3, Object argument4, Object[] arguments) {
+        this.time = System.currentTimeMillis();
+        this.level = level;
+        this.tag = tag;
+        this.message = null;
+        this.format = format;
+        this.argumentCount = argumentCount;
+        this.argument1 = argument1;
+        this.argument2 = argument2;
+        this.argument3 = argument3;
+        this.argument4 = argument4;
+        this.arguments = arguments;
+        this.throwable = null;
+        this.mText = null;
+        clearFields();
+    }
+
+    void copyFrom(LogRecord record) {
+        time = record.time;
+        level = record.level;
+        tag = record.tag;
+        message = record.message;
+        format = record.format;
+        argumentCount = record.argumentCount;
+        argument1 = record.argument1;
+        argument2 = record.argument2;
+        argument3 = record.argument3;
+        argument4 = record.argument4;
+        arguments = record.arguments;
+        throwable = record.throwable;
+        mText = record.mText;
+        clearFields();
+        if (record.mFieldCount > 0) {
+            ensureFieldCapacity(record.mFieldCount);
+            System.arraycopy(record.mFieldKeys, 0, mFieldKeys, 0, record.mFieldCount);
+            System.arraycopy(record.mFieldTypes, 0, mFieldTypes, 0, record.mFieldCount);
+            System.arraycopy(record.mFieldValues, 0, mFieldValues, 0, record.mFieldCount);
+            System.arraycopy(record.mFieldObjects, 0, mFieldObjects, 0, record.mFieldCount);
+            mFieldCount = record.mFieldCount;
+        }
+    }
+
+    /**
+     * drop the references, so a reused record does not keep the arguments alive
+     */
+    void clear() {
+        tag = null;
+        message = null;
+        format = null;
+        argument1 = null;
+        argument2 = null;
+        argument3 = null;
+        argument4 = null;
+        arguments = null;
+        throwable = null;
+        mText = null;
+        clearFields();
+    }
+
+    private void clearFields() {
+        for (int i = 0; i < mFieldCount; i++) {
+            mFieldKeys[i] = null;
+            mFieldObjects[i] = null;
+        }
+        mFieldCount = 0;
+    }
+}
@@ -0,0 +1,493 @@
+package com.pafc.library.log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <pre>
+ * append only log storage, a directory of memory mapped segments with a fixed size
+ * 1. the file name is prefix_index.plog, the index grows by one on every rotation
+ * 2. the first {@link #HEADER_SIZE} bytes are the header, the records follow it
+ * 3. the header keeps the write offset, it is updated after every record, the pages of the mapping are written
+ *    back by the system even when the process is killed, so the last records survive without a fsync per record
+ * 4. when a record does not fit, the next segment is created
+ * 5. on a background thread shared by all handlers, the closed segments are compressed to prefix_index.plog.gz
+ *    (gzip of the header and the records, without the unused tail) if enabled, then the oldest segments over
+ *    the max count or over the max total size are deleted
+ * 6. {@link #export(OutputStream, int, int)} streams all segments as one multi member gzip, every member is a
+ *    segment without its unused tail, all members are deflated by one {@link Deflater}
+ * </pre>
+ * <pre>
+ * header, big endian
+ * 0  int   magic "PLOG"
+ * 4  short version
+ * 6  short format of the records, {@link #FORMAT_TEXT} or {@link #FORMAT_BINARY}
+ * 8  int   write offset, the end of the last complete record
+ * 12 long  creation time of the segment, in ms
+ * </pre>
+ * not thread safe, the owning handler serializes the calls, only the export can run on another thread
+ */
+final class MappedSegmentFile {
+
+    static final int MAGIC = 0x504c4f47;
+    static final short VERSION = 1;
+    static final short FORMAT_TEXT = 0;
+    static final short FORMAT_BINARY = 1;
+
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_FORMAT = 6;
+    static final int OFFSET_WRITE = 8;
+    static final int OFFSET_CREATED = 12;
+    static final int HEADER_SIZE = 24;
+
+    static final String SUFFIX = ".plog";
+    static final String ARCHIVE_SUFFIX = ".plog.gz";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static ExecutorService sMaintenanceExecutor;
+
+    private final File mDirectory;
+    private final String mPrefix;
+    private final int mSegmentSize;
+    private final int mMaxSegmentCount;
+    private final short mFormat;
+    private final boolean isCompressing;
+    private final long mMaxTotalSize;
+
+    private MappedByteBuffer mBuffer;
+    private int mSegmentIndex = -1;
+    private int mWriteOffset;
+    private long mCreatedTime;
+
+    /**
+     * @param compressClosedSegments compress the closed segments in the background
+     * @param maxTotalSize           the max size of all segments of the prefix in bytes, 0 for no limit
+     */
+    MappedSegmentFile(File directory, String prefix, int segmentSize, int maxSegmentCount, short format,
+                      boolean compressClosedSegments, long maxTotalSize) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("segment size must be larger than " + HEADER_SIZE);
+        }
+        if (maxSegmentCount <= 0) {
+            throw new IllegalArgumentException("max segment count must be positive");
+        }
+        mDirectory = directory;
+        mPrefix = prefix;
+        mSegmentSize = segmentSize;
+        mMaxSegmentCount = maxSegmentCount;
+        mFormat = format;
+        isCompressing = compressClosedSegments;
+        mMaxTotalSize = maxTotalSize;
+    }
+
+    /**
+     * @return the max length of one record
+     */
+    int getCapacity() {
+        return mSegmentSize - HEADER_SIZE;
+    }
+
+    /**
+     * open the last segment if it has the same format, or create the first one
+     */
+    void open() throws IOException {
+        if (mBuffer != null) {
+            return;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("can not create " + mDirectory);
+        }
+        final List<Integer> indexes = listSegmentIndexes();
+        if (!indexes.isEmpty()) {
+            final int lastIndex = indexes.get(indexes.size() - 1);
+            final File file = segmentFile(lastIndex);
+            if (file.length() == mSegmentSize) {
+                final MappedByteBuffer buffer = map(file);
+                final int writeOffset = buffer.getInt(OFFSET_WRITE);
+                if (buffer.getInt(OFFSET_MAGIC) == MAGIC && buffer.getShort(OFFSET_FORMAT) == mFormat
+                    && writeOffset >= HEADER_SIZE && writeOffset <= mSegmentSize) {
+                    mBuffer = buffer;
+                    mSegmentIndex = lastIndex;
+                    mWriteOffset = writeOffset;
+                    mCreatedTime = buffer.getLong(OFFSET_CREATED);
+                    // the closed segments of the last run may not be compressed yet
+                    scheduleMaintenance();
+                    return;
+                }
+            }
+            mSegmentIndex = lastIndex;
+        }
+        rotate();
+    }
+
+    boolean isOpen() {
+        return mBuffer != null;
+    }
+
+    boolean fits(int length) {
+        return mWriteOffset + length <= mSegmentSize;
+    }
+
+    /**
+     * @return true if the current segment has no record yet
+     */
+    boolean isEmpty() {
+        return mWriteOffset == HEADER_SIZE;
+    }
+
+    long getCreatedTime() {
+        return mCreatedTime;
+    }
+
+    int getSegmentIndex() {
+        return mSegmentIndex;
+    }
+
+    int getWriteOffset() {
+        return mWriteOffset;
+    }
+
+    /**
+     * close the current segment and continue in a new one
+     */
+    void rotate() throws IOException {
+        final int index = mSegmentIndex + 1;
+        final File file = segmentFile(index);
+        final MappedByteBuffer buffer = map(file);
+        mCreatedTime = System.currentTimeMillis();
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putShort(OFFSET_VERSION, VERSION);
+        buffer.putShort(OFFSET_FORMAT, mFormat);
+        buffer.putLong(OFFSET_CREATED, mCreatedTime);
+        buffer.putInt(OFFSET_WRITE, HEADER_SIZE);
+        if (mBuffer != null) {
+            mBuffer.force();
+        }
+        mBuffer = buffer;
+        mSegmentIndex = index;
+        mWriteOffset = HEADER_SIZE;
+        scheduleMaintenance();
+    }
+
+    /**
+     * append one record, the caller checks {@link #fits(int)} and rotates first
+     */
+    void write(byte[] data, int offset, int length) {
+        mBuffer.position(mWriteOffset);
+        mBuffer.put(data, offset, length);
+        mWriteOffset += length;
+        mBuffer.putInt(OFFSET_WRITE, mWriteOffset);
+    }
+
+    /**
+     * write the dirty pages to the disk, only needed to survive a power loss
+     */
+    void force() {
+        if (mBuffer != null) {
+            mBuffer.force();
+        }
+    }
+
+    void close() {
+        force();
+        mBuffer = null;
+    }
+
+    File segmentFile(int index) {
+        return new File(mDirectory, mPrefix + "_" + index + SUFFIX);
+    }
+
+    File archiveFile(int index) {
+        return new File(mDirectory, mPrefix + "_" + index + ARCHIVE_SUFFIX);
+    }
+
+    /**
+     * stream all segments, the oldest first, as one multi member gzip, nothing is loaded in memory,
+     * the segments are read while the handler goes on writing
+     *
+     * @param currentIndex       the index of the segment in use when the export started, -1 if none
+     * @param currentWriteOffset the write offset of that segment when the export started
+     */
+    void export(OutputStream outputStream, int currentIndex, int currentWriteOffset) throws IOException {
+        final byte[] buffer = new byte[8192];
+        // one native deflater for all members, a GZIPOutputStream per member would leave each one to the finalizer
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            // the members are finished, never closed, the caller owns the stream
+            final GzipMemberOutputStream member = new GzipMemberOutputStream(outputStream, deflater, buffer.length);
+            for (int index : listSegmentIndexes()) {
+                if (copyArchive(index, outputStream, buffer)) {
+                    continue;
+                }
+                final InputStream inputStream;
+                try {
+                    inputStream = new FileInputStream(segmentFile(index));
+                } catch (FileNotFoundException e) {
+                    // compressed or deleted in the meantime
+                    copyArchive(index, outputStream, buffer);
+                    continue;
+                }
+                try {
+                    member.start();
+                    copySegment(inputStream, member, index == currentIndex ? currentWriteOffset : -1, buffer);
+                    member.finish();
+                } finally {
+                    inputStream.close();
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        outputStream.flush();
+    }
+
+    private boolean copyArchive(int index, OutputStream outputStream, byte[] buffer) throws IOException {
+        final InputStream inputStream;
+        try {
+            inputStream = new FileInputStream(archiveFile(index));
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+        try {
+            int count;
+            while ((count = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, count);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return true;
+    }
+
+    /**
+     * copy the header and the records of a segment, without the unused tail
+     *
+     * @param writeOffset the write offset to use, -1 to read it from the header
+     */
+    private static void copySegment(InputStream inputStream, OutputStream outputStream, int writeOffset, byte[] buffer)
+        throws IOException {
+        int headerLength = 0;
+        while (headerLength < HEADER_SIZE) {
+            final int count = inputStream.read(buffer, headerLength, HEADER_SIZE - headerLength);
+            if (count < 0) {
+                return;
+            }
+            headerLength += count;
+        }
+        final ByteBuffer header = ByteBuffer.wrap(buffer, 0, HEADER_SIZE);
+        if (header.getInt(OFFSET_MAGIC) != MAGIC) {
+            return;
+        }
+        if (writeOffset < 0) {
+            writeOffset = header.getInt(OFFSET_WRITE);
+        } else {
+            header.putInt(OFFSET_WRITE, writeOffset);
+        }
+        outputStream.write(buffer, 0, HEADER_SIZE);
+        int remaining = writeOffset - HEADER_SIZE;
+        while (remaining > 0) {
+            final int count = inputStream.read(buffer, 0, Math.min(buffer.length, remaining));
+            if (count < 0) {
+                break;
+            }
+            outputStream.write(buffer, 0, count);
+            remaining -= count;
+        }
+    }
+
+    private void scheduleMaintenance() {
+        maintenanceExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    maintain();
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    private static synchronized ExecutorService maintenanceExecutor() {
+        if (sMaintenanceExecutor == null) {
+            sMaintenanceExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "plog_archive");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return sMaintenanceExecutor;
+    }
+
+    /**
+     * compress the closed segments, then delete the oldest ones over the limits, on the maintenance thread only,
+     * the segment in use is the last one, the writer may have rotated again since this was scheduled
+     */
+    private void maintain() throws IOException {
+        final List<Integer> indexes = listSegmentIndexes();
+        if (indexes.isEmpty()) {
+            return;
+        }
+        final int currentIndex = indexes.get(indexes.size() - 1);
+        if (isCompressing) {
+            for (int index : indexes) {
+                if (index < currentIndex && segmentFile(index).exists()) {
+                    compress(index);
+                }
+            }
+        }
+
+        long totalSize = 0;
+        for (int index : indexes) {
+            totalSize += segmentFile(index).length() + archiveFile(index).length();
+        }
+        int count = indexes.size();
+        for (int index : indexes) {
+            if (index >= currentIndex || (count <= mMaxSegmentCount && (mMaxTotalSize <= 0 || totalSize <= mMaxTotalSize))) {
+                break;
+            }
+            totalSize -= segmentFile(index).length() + archiveFile(index).length();
+            segmentFile(index).delete();
+            archiveFile(index).delete();
+            count--;
+        }
+    }
+
+    private void compress(int index) throws IOException {
+        final File segmentFile = segmentFile(index);
+        final File tempFile = new File(mDirectory, mPrefix + "_" + index + ARCHIVE_SUFFIX + TEMP_SUFFIX);
+        final byte[] buffer = new byte[8192];
+        final InputStream inputStream = new FileInputStream(segmentFile);
+        try {
+            final GZIPOutputStream outputStream = new GZIPOutputStream(new FileOutputStream(tempFile), buffer.length);
+            try {
+                copySegment(inputStream, outputStream, -1, buffer);
+            } finally {
+                outputStream.close();
+            }
+        } finally {
+            inputStream.close();
+        }
+        if (!tempFile.renameTo(archiveFile(index))) {
+            tempFile.delete();
+            throw new IOException("can not rename " + tempFile);
+        }
+        segmentFile.delete();
+    }
+
+    /**
+     * @return the indexes of the segments in the directory, compressed or not, ascending
+     */
+    List<Integer> listSegmentIndexes() {
+        final List<Integer> indexes = new ArrayList<>();
+        final String[] names = mDirectory.list();
+        if (names == null) {
+            return indexes;
+        }
+        final String head = mPrefix + "_";
+        for (String name : names) {
+            if (!name.startsWith(head)) {
+                continue;
+            }
+            final int end = name.endsWith(SUFFIX) ? name.length() - SUFFIX.length()
+                : (name.endsWith(ARCHIVE_SUFFIX) ? name.length() - ARCHIVE_SUFFIX.length() : -1);
+            if (end > head.length()) {
+                try {
+                    final Integer index = Integer.parseInt(name.substring(head.length(), end));
+                    if (!indexes.contains(index)) {
+                        indexes.add(index);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // not a segment
+                }
+            }
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    private MappedByteBuffer map(File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(mSegmentSize);
+            // the mapping stays valid after the channel is closed
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * the gzip members of the export over a shared raw {@link Deflater}, the header and the trailer (crc32 and
+     * size) are written here, {@link #start()} resets the deflater for the next member, the owner ends it
+     */
+    private static final class GzipMemberOutputStream extends DeflaterOutputStream {
+
+        // magic, deflate, no flags, no mtime, no extra flags, os 0 like GZIPOutputStream
+        private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+        private final CRC32 mCrc = new CRC32();
+
+        private final byte[] mTrailer = new byte[8];
+
+        GzipMemberOutputStream(OutputStream outputStream, Deflater deflater, int size) {
+            super(outputStream, deflater, size);
+        }
+
+        void start() throws IOException {
+            def.reset();
+            mCrc.reset();
+            out.write(HEADER);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            mCrc.update(b, off, len);
+        }
+
+        /**
+         * end the member, the stream below is not flushed nor closed
+         */
+        @Override
+        public void finish() throws IOException {
+            super.finish();
+            putIntLittleEndian(mTrailer, 0, (int) mCrc.getValue());
+            // the size modulo 2^32
+            putIntLittleEndian(mTrailer, 4, (int) def.getBytesRead());
+            out.write(mTrailer);
+        }
+
+        private static void putIntLittleEndian(byte[] bytes, int offset, int value) {
+            bytes[offset] = (byte) value;
+            bytes[offset + 1] = (byte) (value >>> 8);
+            bytes[offset + 2] = (byte) (value >>> 16);
+            bytes[offset + 3] = (byte) (value >>> 24);
+        }
+    }
+}
@@ -2,14 +2,16 @@ package com.pafc.library.log;
 
 import android.util.Log;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * <pre>
  * system Log replace class
  * 1. can config the console log visibility and the minimum level
  * 2. can add custom {@link com.pafc.library.log.PLog.Config}
+ * 3. can hand the lines to a background thread, see {@link #startAsyncLog(int, int)}
+ * 4. can choose how the lines without a tag get one, see {@link #setTagMode(int)}
+ * 5. can set the level of some tags of a config, see {@link TagLevelRules}
+ * 6. can limit the rate of the lines per tag and per fmt, and sample them, see {@link Config.Builder#setTagRateLimit(int, int)}
+ * 7. can log structured events, see {@link #event(int, String)}
  * </pre>
  */
 public final class PLog {
@@ -20,7 +22,43 @@ public final class PLog {
     public static final int LEVEL_WARN = Log.WARN;
     public static final int LEVEL_ERROR = Log.ERROR;
 
-    private static List<Config> sLogConfigs = new ArrayList<>();
+    /**
+     * async mode overflow policy, the logging thread waits until the ring has room
+     */
+    public static final int ASYNC_OVERFLOW_BLOCK = 0;
+    /**
+     * async mode overflow policy, the line is dropped when the ring is full
+     */
+    public static final int ASYNC_OVERFLOW_DROP = 1;
+    /**
+     * async mode overflow policy, one line of eight is kept when the ring is more than 3/4 full
+     */
+    public static final int ASYNC_OVERFLOW_SAMPLE = 2;
+
+    private static final long ASYNC_STOP_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * tag mode, the lines without a tag get {@link #DEFAULT_TAG}, no stack walk at all
+     */
+    public static final int TAG_MODE_OFF = 0;
+    /**
+     * tag mode, the lines without a tag get the simple name of the calling class. the stack is still walked on
+     * every line, only the tag string is cached by the class name. the cheap way is a tag constant, see
+     * {@link #classTag(Class)}
+     */
+    public static final int TAG_MODE_CLASS_ONLY = 1;
+    /**
+     * tag mode, the lines without a tag get the class, method and line of the caller, the stack is walked
+     * on every line, for debug builds
+     */
+    public static final int TAG_MODE_FULL = 2;
+
+    public static final String DEFAULT_TAG = "PLog";
+
+    private static final int CLASS_TAG_CACHE_SIZE = 512;
+
+    private static final long DEFAULT_SUMMARY_INTERVAL_MILLIS = 10 * 1000;
+
     private static Config sConsoleLogConfig = new Config.Builder().setLogLevel(LEVEL_VERBOSE).setLogVisible(true).setLogHandler(new Config.ILogHandler() {
         @Override
         public void onLog(int level, String tag, String message) {
@@ -28,26 +66,152 @@ public final class PLog {
         }
     }).build();
 
-    static {
-        sLogConfigs.add(sConsoleLogConfig);
-    }
+    private static volatile AsyncLogDispatcher sAsyncDispatcher;
+
+    private static volatile int sTagMode = TAG_MODE_FULL;
+
+    private static final ThreadLocal<LogEvent> sEvents = new ThreadLocal<LogEvent>() {
+        @Override
+        protected LogEvent initialValue() {
+            return new LogEvent(new LogRecord());
+        }
+    };
+
+    private static final ThreadLocal<LogRecord> sRecords = new ThreadLocal<LogRecord>() {
+        @Override
+        protected LogRecord initialValue() {
+            return new LogRecord();
+        }
+    };
+
+    // the tags of TAG_MODE_CLASS_ONLY, direct mapped by the class name of the caller, a racy slot write only
+    // costs another substring
+    private static final ClassTag[] sClassTags = new ClassTag[CLASS_TAG_CACHE_SIZE];
+
+    // copy on write, the log calls read the snapshot without a lock, the writers hold sConfigLock
+    private static volatile LogConfigs sLogConfigs = new LogConfigs(new Config[]{sConsoleLogConfig});
+
+    private static final Object sConfigLock = new Object();
 
     public static void setConsoleLogVisible(boolean logVisible) {
         sConsoleLogConfig.isLogVisible = logVisible;
+        refreshLogConfigs();
     }
 
     public static void setConsoleMinimumLogLevel(int logLevel) {
         if (logLevel >= LEVEL_VERBOSE && logLevel <= LEVEL_ERROR) {
             sConsoleLogConfig.minimumLogLevel = logLevel;
+            refreshLogConfigs();
         }
     }
 
     public static void addLogConfig(Config config) {
-        sLogConfigs.add(config);
+        synchronized (sConfigLock) {
+            final Config[] configs = sLogConfigs.configs;
+            final Config[] newConfigs = new Config[configs.length + 1];
+            System.arraycopy(configs, 0, newConfigs, 0, configs.length);
+            newConfigs[configs.length] = config;
+            sLogConfigs = new LogConfigs(newConfigs);
+        }
     }
 
     public static void removeLogConfig(Config config) {
-        sLogConfigs.remove(config);
+        synchronized (sConfigLock) {
+            final Config[] configs = sLogConfigs.configs;
+            for (int i = 0; i < configs.length; i++) {
+                if (configs[i] == config) {
+                    final Config[] newConfigs = new Config[configs.length - 1];
+                    System.arraycopy(configs, 0, newConfigs, 0, i);
+                    System.arraycopy(configs, i + 1, newConfigs, i, configs.length - i - 1);
+                    sLogConfigs = new LogConfigs(newConfigs);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * recompute the minimum level after a config in the snapshot changed
+     */
+    private static void refreshLogConfigs() {
+        synchronized (sConfigLock) {
+            sLogConfigs = new LogConfigs(sLogConfigs.configs);
+        }
+    }
+
+    /**
+     * an immutable snapshot of the configs, with the lowest level any of them takes
+     */
+    private static final class LogConfigs {
+
+        final Config[] configs;
+        final int minimumLevel;
+
+        LogConfigs(Config[] configs) {
+            this.configs = configs;
+            int minimumLevel = Integer.MAX_VALUE;
+            for (Config config : configs) {
+                minimumLevel = Math.min(minimumLevel, config.getMinimumLevel());
+            }
+            this.minimumLevel = minimumLevel;
+        }
+    }
+
+    /**
+     * how the lines without a tag get one, {@link #TAG_MODE_FULL} by default
+     *
+     * @param tagMode {@link #TAG_MODE_OFF}, {@link #TAG_MODE_CLASS_ONLY} or {@link #TAG_MODE_FULL}
+     */
+    public static void setTagMode(int tagMode) {
+        if (tagMode >= TAG_MODE_OFF && tagMode <= TAG_MODE_FULL) {
+            sTagMode = tagMode;
+        }
+    }
+
+    /**
+     * the tag {@link #TAG_MODE_CLASS_ONLY} would create for a class, to be kept in a constant, like
+     * <code>private static final String TAG = PLog.classTag(MainActivity.class);</code>, so the tag is
+     * resolved once when the class is loaded and the lines using it never walk the stack
+     */
+    public static String classTag(Class<?> cls) {
+        return simpleClassName(cls.getName());
+    }
+
+    /**
+     * hand the lines to a background thread, the log handlers are called there in order,
+     * the arguments of the xF lines are formatted there too, so they should not be changed after the call
+     *
+     * @param capacity       the ring size, rounded up to a power of two
+     * @param overflowPolicy {@link #ASYNC_OVERFLOW_BLOCK}, {@link #ASYNC_OVERFLOW_DROP} or {@link #ASYNC_OVERFLOW_SAMPLE}
+     */
+    public static synchronized void startAsyncLog(int capacity, int overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (overflowPolicy < ASYNC_OVERFLOW_BLOCK || overflowPolicy > ASYNC_OVERFLOW_SAMPLE) {
+            throw new IllegalArgumentException("unknown overflow policy " + overflowPolicy);
+        }
+        stopAsyncLog();
+        sAsyncDispatcher = new AsyncLogDispatcher(capacity, overflowPolicy);
+    }
+
+    /**
+     * go back to the sync mode, the lines already in the ring are delivered before this returns
+     */
+    public static synchronized void stopAsyncLog() {
+        final AsyncLogDispatcher dispatcher = sAsyncDispatcher;
+        if (dispatcher != null) {
+            sAsyncDispatcher = null;
+            dispatcher.shutdown(ASYNC_STOP_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * @return the lines dropped by the overflow policy of the current async mode
+     */
+    public static long getAsyncDroppedLogCount() {
+        final AsyncLogDispatcher dispatcher = sAsyncDispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDroppedCount();
     }
 
     public static class Config {
@@ -56,14 +220,58 @@ public final class PLog {
             public void onLog(int level, String tag, String message);
         }
 
+        /**
+         * a handler that gets the whole {@link LogRecord}, with the time, the fmt and the raw arguments,
+         * {@link ILogHandler#onLog(int, String, String)} is not called for it
+         */
+        public static interface IRecordLogHandler extends ILogHandler {
+            public void onLog(LogRecord record);
+        }
+
         int minimumLogLevel = LEVEL_VERBOSE;
         boolean isLogVisible = true;
         ILogHandler logHandler = null;
+        volatile TagLevelRules tagLevelRules = null;
+        LogLimiter limiter = null;
+
+        /**
+         * replace the tag rules at runtime, null to drop them, the log calls never wait for this
+         */
+        public void setTagLevelRules(TagLevelRules rules) {
+            tagLevelRules = rules;
+            refreshLogConfigs();
+        }
+
+        /**
+         * @return the lowest level any tag of this config takes
+         */
+        int getMinimumLevel() {
+            if (!isLogVisible || logHandler == null) {
+                return Integer.MAX_VALUE;
+            }
+            final TagLevelRules rules = tagLevelRules;
+            return rules == null ? minimumLogLevel : Math.min(minimumLogLevel, rules.getMinimumLevel());
+        }
+
+        boolean isLoggable(int level, String tag) {
+            if (!isLogVisible || logHandler == null) {
+                return false;
+            }
+            final TagLevelRules rules = tagLevelRules;
+            return level >= (rules == null ? minimumLogLevel : rules.getLevel(tag, minimumLogLevel));
+        }
 
         public static class Builder {
 
             private Config mConfig;
 
+            private int mTagRate;
+            private int mTagBurst;
+            private int mFormatRate;
+            private int mFormatBurst;
+            private float mSampleRate = 1;
+            private long mSummaryInterval = DEFAULT_SUMMARY_INTERVAL_MILLIS;
+
             public Builder() {
                 mConfig = new Config();
             }
@@ -85,9 +293,68 @@ public final class PLog {
                 return this;
             }
 
+            /**
+             * the levels of some tags or tag prefixes, over {@link #setLogLevel(int)}
+             */
+            public Builder setTagLevelRules(TagLevelRules rules) {
+                mConfig.tagLevelRules = rules;
+                return this;
+            }
+
+            /**
+             * at most linesPerSecond lines per tag, after a burst of burst lines, the others are suppressed
+             */
+            public Builder setTagRateLimit(int linesPerSecond, int burst) {
+                mTagRate = checkRate(linesPerSecond);
+                mTagBurst = burst;
+                return this;
+            }
+
+            /**
+             * at most linesPerSecond lines per fmt, after a burst of burst lines, the others are suppressed.
+             * this is a per-format limit, not a per call site one: only the xF lines are limited, and the calls with
+             * an equal fmt, in any class, share one limit. the other lines are limited by the tag only, see
+             * {@link #setTagRateLimit(int, int)}
+             */
+            public Builder setFormatRateLimit(int linesPerSecond, int burst) {
+                mFormatRate = checkRate(linesPerSecond);
+                mFormatBurst = burst;
+                return this;
+            }
+
+            /**
+             * keep a line with this probability, 1 by default
+             */
+            public Builder setSampleRate(float sampleRate) {
+                if (!(sampleRate > 0 && sampleRate <= 1)) {
+                    throw new IllegalArgumentException("sample rate must be in (0, 1]");
+                }
+                mSampleRate = sampleRate;
+                return this;
+            }
+
+            /**
+             * how often a "suppressed N lines" line is written by the limits and the sampling, 0 for never,
+             * 10 s by default
+             */
+            public Builder setSuppressedSummaryInterval(long intervalMillis) {
+                mSummaryInterval = Math.max(0, intervalMillis);
+                return this;
+            }
+
             public Config build() {
+                if (mTagRate > 0 || mFormatRate > 0 || mSampleRate < 1) {
+                    mConfig.limiter = new LogLimiter(mTagRate, mTagBurst, mFormatRate, mFormatBurst, mSampleRate, mSummaryInterval);
+                }
                 return mConfig;
             }
+
+            private static int checkRate(int linesPerSecond) {
+                if (linesPerSecond <= 0 || linesPerSecond > 1000000) {
+                    throw new IllegalArgumentException("lines per second must be in [1, 1000000]");
+                }
+                return linesPerSecond;
+            }
         }
 
     }
@@ -101,11 +368,27 @@ public final class PLog {
     }
 
     public static void vF(String fmt, Object... args) {
-        log(LEVEL_VERBOSE, null, String.format(fmt, args), null);
+        logFormat(LEVEL_VERBOSE, null, fmt, 0, null, null, null, null, args);
     }
 
     public static void vF(String tag, String fmt, Object... args) {
-        log(LEVEL_VERBOSE, tag, String.format(fmt, args), null);
+        logFormat(LEVEL_VERBOSE, tag, fmt, 0, null, null, null, null, args);
+    }
+
+    public static void vF(String tag, String fmt, Object arg1) {
+        logFormat(LEVEL_VERBOSE, tag, fmt, 1, arg1, null, null, null, null);
+    }
+
+    public static void vF(String tag, String fmt, Object arg1, Object arg2) {
+        logFormat(LEVEL_VERBOSE, tag, fmt, 2, arg1, arg2, null, null, null);
+    }
+
+    public static void vF(String tag, String fmt, Object arg1, Object arg2, Object arg3) {
+        logFormat(LEVEL_VERBOSE, tag, fmt, 3, arg1, arg2, arg3, null, null);
+    }
+
+    public static void vF(String tag, String fmt, Object arg1, Object arg2, Object arg3, Object arg4) {
+        logFormat(LEVEL_VERBOSE, tag, fmt, 4, arg1, arg2, arg3, arg4, null);
     }
 
     public static void d(String message) {
@@ -117,11 +400,27 @@ public final class PLog {
     }
 
     public static void dF(String fmt, Object... args) {
-        log(LEVEL_DEBUG, null, String.format(fmt, args), null);
+        logFormat(LEVEL_DEBUG, null, fmt, 0, null, null, null, null, args);
     }
 
     public static void dF(String tag, String fmt, Object... args) {
-        log(LEVEL_DEBUG, tag, String.format(fmt, args), null);
+        logFormat(LEVEL_DEBUG, tag, fmt, 0, null, null, null, null, args);
+    }
+
+    public static void dF(String tag, String fmt, Object arg1) {
+        logFormat(LEVEL_DEBUG, tag, fmt, 1, arg1, null, null, null, null);
+    }
+
+    public static void dF(String tag, String fmt, Object arg1, Object arg2) {
+        logFormat(LEVEL_DEBUG, tag, fmt, 2, arg1, arg2, null, null, null);
+    }
+
+    public static void dF(String tag, String fmt, Object arg1, Object arg2, Object arg3) {
+        logFormat(LEVEL_DEBUG, tag, fmt, 3, arg1, arg2, arg3, null, null);
+    }
+
+    public static void dF(String tag, String fmt, Object arg1, Object arg2, Object arg3, Object arg4) {
+        logFormat(LEVEL_DEBUG, tag, fmt, 4, arg1, arg2, arg3, arg4, null);
     }
 
     public static void i(String message) {
@@ -133,11 +432,27 @@ public final class PLog {
     }
 
     public static void iF(String fmt, Object... args) {
-        log(LEVEL_INFO, null, String.format(fmt, args), null);
+        logFormat(LEVEL_INFO, null, fmt, 0, null, null, null, null, args);
     }
 
     public static void iF(String tag, String fmt, Object... args) {
-        log(LEVEL_INFO, tag, String.format(fmt, args), null);
+        logFormat(LEVEL_INFO, tag, fmt, 0, null, null, null, null, args);
+    }
+
+    public static void iF(String tag, String fmt, Object arg1) {
+        logFormat(LEVEL_INFO, tag, fmt, 1, arg1, null, null, null, null);
+    }
+
+    public static void iF(String tag, String fmt, Object arg1, Object arg2) {
+        logFormat(LEVEL_INFO, tag, fmt, 2, arg1, arg2, null, null, null);
+    }
+
+    public static void iF(String tag, String fmt, Object arg1, Object arg2, Object arg3) {
+        logFormat(LEVEL_INFO, tag, fmt, 3, arg1, arg2, arg3, null, null);
+    }
+
+    public static void iF(String tag, String fmt, Object arg1, Object arg2, Object arg3, Object arg4) {
+        logFormat(LEVEL_INFO, tag, fmt, 4, arg1, arg2, arg3, arg4, null);
     }
 
     public static void w(String message) {
@@ -153,11 +468,27 @@ public final class PLog {
     }
 
     public static void wF(String fmt, Object... args) {
-        log(LEVEL_WARN, null, String.format(fmt, args), null);
+        logFormat(LEVEL_WARN, null, fmt, 0, null, null, null, null, args);
     }
 
     public static void wF(String tag, String fmt, Object... args) {
-        log(LEVEL_WARN, tag, String.format(fmt, args), null);
+        logFormat(LEVEL_WARN, tag, fmt, 0, null, null, null, null, args);
+    }
+
+    public static void wF(String tag, String fmt, Object arg1) {
+        logFormat(LEVEL_WARN, tag, fmt, 1, arg1, null, null, null, null);
+    }
+
+    public static void wF(String tag, String fmt, Object arg1, Object arg2) {
+        logFormat(LEVEL_WARN, tag, fmt, 2, arg1, arg2, null, null, null);
+    }
+
+    public static void wF(String tag, String fmt, Object arg1, Object arg2, Object arg3) {
+        logFormat(LEVEL_WARN, tag, fmt, 3, arg1, arg2, arg3, null, null);
+    }
+
+    public static void wF(String tag, String fmt, Object arg1, Object arg2, Object arg3, Object arg4) {
+        logFormat(LEVEL_WARN, tag, fmt, 4, arg1, arg2, arg3, arg4, null);
     }
 
     public static void e(String message) {
@@ -173,32 +504,184 @@ public final class PLog {
     }
 
     public static void eF(String fmt, Object... args) {
-        log(LEVEL_ERROR, null, String.format(fmt, args), null);
+        logFormat(LEVEL_ERROR, null, fmt, 0, null, null, null, null, args);
     }
 
     public static void eF(String tag, String fmt, Object... args) {
-        log(LEVEL_ERROR, tag, String.format(fmt, args), null);
+        logFormat(LEVEL_ERROR, tag, fmt, 0, null, null, null, null, args);
     }
 
+    public static void eF(String tag, String fmt, Object arg1) {
+        logFormat(LEVEL_ERROR, tag, fmt, 1, arg1, null, null, null, null);
+    }
+
+    public static void eF(String tag, String fmt, Object arg1, Object arg2) {
+        logFormat(LEVEL_ERROR, tag, fmt, 2, arg1, arg2, null, null, null);
+    }
+
+    public static void eF(String tag, String fmt, Object arg1, Object arg2, Object arg3) {
+        logFormat(LEVEL_ERROR, tag, fmt, 3, arg1, arg2, arg3, null, null);
+    }
+
+    public static void eF(String tag, String fmt, Object arg1, Object arg2, Object arg3, Object arg4) {
+        logFormat(LEVEL_ERROR, tag, fmt, 4, arg1, arg2, arg3, arg4, null);
+    }
+
+
+    /**
+     * @return false if no config takes a line of this level, the caller can skip building the message
+     */
+    public static boolean isLoggable(int level) {
+        return level >= sLogConfigs.minimumLevel;
+    }
 
     private static void log(int level, String tag, String message, Throwable throwable) {
+        if (!isLoggable(level)) {
+            return;
+        }
+        final String newTag = tag == null ? createTag() : tag;
+        final LogRecord record = obtainRecord();
+        record.set(level, newTag, message, throwable);
+        post(record);
+    }
+
+    /**
+     * the level gate runs before anything else, args is used when not null, otherwise the first argCount of arg1..arg4,
+     * the message is formatted when a handler asks for it
+     */
+    private static void logFormat(int level, String tag, String fmt, int argCount,
+                                  Object arg1, Object arg2, Object arg3, Object arg4, Object[] args) {
+        if (!isLoggable(level)) {
+            return;
+        }
+        final String newTag = tag == null ? createTag() : tag;
+        final LogRecord record = obtainRecord();
+        record.setFormat(level, newTag, fmt, argCount, arg1, arg2, arg3, arg4, args);
+        post(record);
+    }
+
+    /**
+     * start a structured line, see {@link LogEvent}, end it with {@link LogEvent#log()}
+     */
+    public static LogEvent event(int level, String tag) {
+        return obtainEvent(level, tag);
+    }
+
+    private static LogEvent obtainEvent(int level, String tag) {
+        if (!isLoggable(level)) {
+            return LogEvent.DISABLED;
+        }
         final String newTag = tag == null ? createTag() : tag;
-        final String newMessage = throwable == null ? message : (message + "\n" + Log.getStackTraceString(throwable));
-        for (Config config : sLogConfigs) {
-            if (config.isLogVisible && level >= config.minimumLogLevel && config.logHandler != null) {
-                config.logHandler.onLog(level, newTag, newMessage);
+        LogEvent event = sEvents.get();
+        if (event.isInUse) {
+            // an event built while building another one on this thread
+            event = new LogEvent(new LogRecord());
+        }
+        event.start(level, newTag);
+        return event;
+    }
+
+    private static LogRecord obtainRecord() {
+        final LogRecord record = sRecords.get();
+        // a handler logging on the dispatching thread gets its own record
+        return record.isBusy ? new LogRecord() : record;
+    }
+
+    static void post(LogRecord record) {
+        record.isBusy = true;
+        try {
+            final AsyncLogDispatcher dispatcher = sAsyncDispatcher;
+            if (dispatcher != null) {
+                dispatcher.enqueue(record);
+            } else {
+                dispatch(record);
+            }
+        } finally {
+            record.clear();
+            record.isBusy = false;
+        }
+    }
+
+    static void dispatch(LogRecord record) {
+        final int level = record.level;
+        String message = null;
+        for (Config config : sLogConfigs.configs) {
+            if (config.isLoggable(level, record.tag)) {
+                final LogLimiter limiter = config.limiter;
+                if (limiter != null) {
+                    final String summary = limiter.pollSummary(record.time);
+                    if (summary != null) {
+                        final LogRecord summaryRecord = new LogRecord();
+                        summaryRecord.set(LEVEL_WARN, DEFAULT_TAG, summary, null);
+                        deliver(config, summaryRecord, summary);
+                    }
+                    if (!limiter.accept(record)) {
+                        continue;
+                    }
+                }
+                if (message == null && !(config.logHandler instanceof Config.IRecordLogHandler)) {
+                    message = record.throwable == null ? record.getMessage()
+                        : (record.getMessage() + "\n" + Log.getStackTraceString(record.throwable));
+                }
+                deliver(config, record, message);
             }
         }
     }
 
+    /**
+     * @param message the message with the stack trace, for a plain handler
+     */
+    private static void deliver(Config config, LogRecord record, String message) {
+        if (config.logHandler instanceof Config.IRecordLogHandler) {
+            ((Config.IRecordLogHandler) config.logHandler).onLog(record);
+        } else {
+            config.logHandler.onLog(record.level, record.tag, message);
+        }
+    }
+
     private static String createTag() {
+        final int tagMode = sTagMode;
+        if (tagMode == TAG_MODE_OFF) {
+            return DEFAULT_TAG;
+        }
         final StackTraceElement[] stackTraceElements = new Throwable().getStackTrace();
-        if (stackTraceElements != null) {
+        if (stackTraceElements != null && stackTraceElements.length > 3) {
             StackTraceElement element = stackTraceElements[3];
+            if (tagMode == TAG_MODE_CLASS_ONLY) {
+                final String className = element.getClassName();
+                final int index = (className.hashCode() & 0x7fffffff) % CLASS_TAG_CACHE_SIZE;
+                final ClassTag classTag = sClassTags[index];
+                if (classTag != null && classTag.className.equals(className)) {
+                    return classTag.tag;
+                }
+                final String tag = simpleClassName(className);
+                sClassTags[index] = new ClassTag(className, tag);
+                return tag;
+            }
             return element.getClassName() + " " + element.getMethodName() + ":" + element.getLineNumber();
         }
         return "";
     }
 
+    /**
+     * com.pafc.app.MainActivity$1 -> MainActivity
+     */
+    private static String simpleClassName(String className) {
+        final int start = className.lastIndexOf('.') + 1;
+        final int end = className.indexOf('$', start);
+        return end > start ? className.substring(start, end) : className.substring(start);
+    }
+
+    private static final class ClassTag {
+
+        final String className;
+        final String tag;
+
+        ClassTag(String className, String tag) {
+            this.className = className;
+            this.tag = tag;
+        }
+    }
+
 
 }
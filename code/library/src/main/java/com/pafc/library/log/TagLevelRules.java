@@ -0,0 +1,153 @@
+package com.pafc.library.log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ * the minimum level of the tags of one {@link PLog.Config}, over the minimum level of the config
+ * 1. a tag rule matches the tag exactly, a prefix rule matches the tags starting with it, the longest prefix wins
+ * 2. the rules are immutable, replace them with {@link PLog.Config#setTagLevelRules(TagLevelRules)}, the log calls
+ *    read them without a lock
+ * 3. the result per tag is cached by its value, so the tags built per line, like the ones of
+ *    {@link PLog#TAG_MODE_FULL}, are looked up once per call site too
+ * </pre>
+ * <pre>
+ * TagLevelRules rules = new TagLevelRules.Builder()
+ *     .setTagLevel("Net", PLog.LEVEL_WARN)
+ *     .setPrefixLevel("com.pafc.app.player", PLog.LEVEL_VERBOSE)
+ *     .build();
+ * </pre>
+ */
+public final class TagLevelRules {
+
+    /**
+     * the level that silences a tag, above {@link PLog#LEVEL_ERROR}
+     */
+    public static final int LEVEL_OFF = PLog.LEVEL_ERROR + 1;
+
+    private static final int CACHE_SIZE = 256;
+
+    // level of a tag without a rule, the config level is used
+    private static final int NO_RULE = -1;
+
+    private final Map<String, Integer> mTagLevels;
+
+    // longest first
+    private final String[] mPrefixes;
+    private final int[] mPrefixLevels;
+
+    private final int mMinimumLevel;
+
+    // direct mapped by the hash of the tag, a racy slot write only costs another lookup
+    private final CachedLevel[] mCache = new CachedLevel[CACHE_SIZE];
+
+    private TagLevelRules(Map<String, Integer> tagLevels, Map<String, Integer> prefixLevelMap) {
+        mTagLevels = tagLevels;
+        final List<Map.Entry<String, Integer>> prefixLevels = new ArrayList<>(prefixLevelMap.entrySet());
+        Collections.sort(prefixLevels, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> lhs, Map.Entry<String, Integer> rhs) {
+                return rhs.getKey().length() - lhs.getKey().length();
+            }
+        });
+        mPrefixes = new String[prefixLevels.size()];
+        mPrefixLevels = new int[prefixLevels.size()];
+        int minimumLevel = Integer.MAX_VALUE;
+        for (int i = 0; i < mPrefixes.length; i++) {
+            mPrefixes[i] = prefixLevels.get(i).getKey();
+            mPrefixLevels[i] = prefixLevels.get(i).getValue();
+            minimumLevel = Math.min(minimumLevel, mPrefixLevels[i]);
+        }
+        for (int level : tagLevels.values()) {
+            minimumLevel = Math.min(minimumLevel, level);
+        }
+        mMinimumLevel = minimumLevel;
+    }
+
+    /**
+     * @return the lowest level of all rules, {@link Integer#MAX_VALUE} without rules
+     */
+    public int getMinimumLevel() {
+        return mMinimumLevel;
+    }
+
+    /**
+     * @param defaultLevel the level of a tag without a rule
+     */
+    public int getLevel(String tag, int defaultLevel) {
+        if (tag == null) {
+            return defaultLevel;
+        }
+        final int hash = tag.hashCode();
+        final int index = (hash & 0x7fffffff) % CACHE_SIZE;
+        final CachedLevel cachedLevel = mCache[index];
+        int level;
+        if (cachedLevel != null && (cachedLevel.tag == tag
+            || cachedLevel.hash == hash && cachedLevel.tag.equals(tag))) {
+            level = cachedLevel.level;
+        } else {
+            level = lookUp(tag);
+            mCache[index] = new CachedLevel(tag, hash, level);
+        }
+        return level == NO_RULE ? defaultLevel : level;
+    }
+
+    private int lookUp(String tag) {
+        final Integer level = mTagLevels.get(tag);
+        if (level != null) {
+            return level;
+        }
+        for (int i = 0; i < mPrefixes.length; i++) {
+            if (tag.startsWith(mPrefixes[i])) {
+                return mPrefixLevels[i];
+            }
+        }
+        return NO_RULE;
+    }
+
+    private static final class CachedLevel {
+
+        final String tag;
+        final int hash;
+        final int level;
+
+        CachedLevel(String tag, int hash, int level) {
+            this.tag = tag;
+            this.hash = hash;
+            this.level = level;
+        }
+    }
+
+    public static class Builder {
+
+        private final Map<String, Integer> mTagLevels = new HashMap<>();
+
+        private final Map<String, Integer> mPrefixLevels = new HashMap<>();
+
+        public Builder setTagLevel(String tag, int level) {
+            mTagLevels.put(tag, checkLevel(level));
+            return this;
+        }
+
+        public Builder setPrefixLevel(String prefix, int level) {
+            mPrefixLevels.put(prefix, checkLevel(level));
+            return this;
+        }
+
+        public TagLevelRules build() {
+            return new TagLevelRules(new HashMap<>(mTagLevels), new HashMap<>(mPrefixLevels));
+        }
+
+        private static int checkLevel(int level) {
+            if (level < PLog.LEVEL_VERBOSE || level > LEVEL_OFF) {
+                throw new IllegalArgumentException("unknown level " + level);
+            }
+            return level;
+        }
+    }
+}
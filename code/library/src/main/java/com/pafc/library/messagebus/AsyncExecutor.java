@@ -0,0 +1,122 @@
+package com.pafc.library.messagebus;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Process;
+
+/**
+ * the thread pool of the {@link MessageAsyncHandle} methods: a fixed pool size, a bounded queue,
+ * and a {@link MessageBus.RejectionPolicy} when the queue is full
+ *
+ * @author idiot2ger
+ */
+final class AsyncExecutor {
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final BlockingQueue<Runnable> mQueue;
+
+    private final AtomicLong mRejectedCount = new AtomicLong();
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    AsyncExecutor(int poolSize, int queueCapacity, final int threadPriority, MessageBus.RejectionPolicy policy,
+                  long blockTimeoutMillis) {
+        final AtomicInteger counter = new AtomicInteger(0);
+        mQueue = new ArrayBlockingQueue<Runnable>(queueCapacity);
+        mExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, mQueue, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread() {
+                    @Override
+                    public void run() {
+                        setName("async_handle #" + counter.incrementAndGet());
+                        Process.setThreadPriority(threadPriority);
+                        r.run();
+                    }
+                };
+            }
+        }, new RejectionHandler(policy, blockTimeoutMillis));
+    }
+
+    void execute(Runnable runnable) {
+        mExecutor.execute(runnable);
+    }
+
+    void shutdownNow() {
+        mExecutor.shutdownNow();
+    }
+
+    int getQueuedCount() {
+        return mQueue.size();
+    }
+
+    long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    private void drop(Runnable runnable) {
+        if (runnable instanceof SerialLane) {
+            mDroppedCount.addAndGet(((SerialLane) runnable).drop());
+        } else {
+            mDroppedCount.incrementAndGet();
+        }
+    }
+
+    private class RejectionHandler implements RejectedExecutionHandler {
+
+        private final MessageBus.RejectionPolicy mPolicy;
+
+        private final long mBlockTimeoutMillis;
+
+        RejectionHandler(MessageBus.RejectionPolicy policy, long blockTimeoutMillis) {
+            mPolicy = policy;
+            mBlockTimeoutMillis = blockTimeoutMillis;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            // released, nothing will run any more
+            if (executor.isShutdown()) {
+                return;
+            }
+            mRejectedCount.incrementAndGet();
+            switch (mPolicy) {
+                case CALLER_RUNS:
+                    r.run();
+                    break;
+                case DROP_OLDEST:
+                    final Runnable oldest = mQueue.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                    executor.execute(r);
+                    break;
+                case DROP_NEWEST:
+                    drop(r);
+                    break;
+                case BLOCK:
+                    try {
+                        if (!mQueue.offer(r, mBlockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                            drop(r);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        drop(r);
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -45,6 +45,65 @@ public interface IMessageBus {
 
     public void postImmediate(int messageId, Object object);
 
+    /**
+     * post a message, if a coalesced message with the same id is still waiting, only replace its
+     * object, so the handles see the latest object once
+     *
+     * @param messageId
+     * @param object
+     */
+    public void postCoalesced(int messageId, Object object);
+
+    /**
+     * post a message after the window, every post in the window replaces the object and restarts
+     * the window, so the handles run once the posts stop
+     *
+     * @param messageId
+     * @param object
+     * @param window    the quiet time in milliseconds
+     */
+    public void postDebounced(int messageId, Object object, long window);
+
+    /**
+     * post a message at most once in the window, the posts in the window replace the object and are
+     * delivered at the end of the window
+     *
+     * @param messageId
+     * @param object
+     * @param window    the min time between two deliveries in milliseconds
+     */
+    public void postThrottled(int messageId, Object object, long window);
+
+    /**
+     * post many messages at once, they are delivered in order in one pass of the main thread. the
+     * async handles of the batch are run in order by one task of the thread pool, except the serial
+     * ones which keep their lanes
+     *
+     * @param messageIds
+     * @param objects    the object of each message id, or null if the messages have no object
+     */
+    public void postBatch(int[] messageIds, Object[] objects);
+
+    /**
+     * post a message and keep the object as the sticky one of the message id, the object is
+     * delivered again to every object registered later, once. the MessageHandle methods get it on the
+     * main thread, at once if the register is on the main thread, the MessageAsyncHandle methods in the pool
+     *
+     * @param messageId
+     * @param object
+     */
+    public void postSticky(int messageId, Object object);
+
+    /**
+     * @param messageId
+     * @return the sticky object of the message id, null if none
+     */
+    public Object getStickyMessage(int messageId);
+
+    public void removeStickyMessage(int messageId);
+
+    public void clearStickyMessages();
+
     public void release();
 
 }
@@ -0,0 +1,17 @@
+package com.pafc.library.messagebus;
+
+/**
+ * call one {@link MessageHandle} or {@link MessageAsyncHandle} method of a subscriber.<br>
+ * the generated {@link ISubscriberIndex} provides invokers which call the method directly, the
+ * classes which are not indexed use {@link ReflectMethodInvoker}
+ *
+ * @author idiot2ger
+ */
+public interface IMethodInvoker {
+
+    /**
+     * @param target   the registered object
+     * @param argument the posted object, ignored if the method has no parameter
+     */
+    public void invoke(Object target, Object argument);
+}
@@ -0,0 +1,19 @@
+package com.pafc.library.messagebus;
+
+/**
+ * subscriber index, generated at build time by the messagebus-compiler annotation processor.<br>
+ * {@link MessageBus} asks the index first when a new class is registered, and only scans the class
+ * methods by reflection when the class is not indexed, see {@link MessageBus#addSubscriberIndex(ISubscriberIndex)}
+ *
+ * @author idiot2ger
+ */
+public interface ISubscriberIndex {
+
+    /**
+     * get the subscriber info of the class
+     *
+     * @param subscriberClass
+     * @return the subscriber info, or null if the class is not indexed
+     */
+    public SubscriberInfo getSubscriberInfo(Class<?> subscriberClass);
+}
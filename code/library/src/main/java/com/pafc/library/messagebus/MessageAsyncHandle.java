@@ -23,4 +23,30 @@ public @interface MessageAsyncHandle {
    * @return
    */
   public int value() default 0;
+
+  /**
+   * the order of the async handles, default every handle can run in any pool thread at same time
+   * 
+   * @return
+   */
+  public SerialMode serial() default SerialMode.NONE;
+
+  /**
+   * the serial modes run the handles one at a time and in post order, on top of the shared pool,
+   * so the method does not need its own lock
+   */
+  public static enum SerialMode {
+    /**
+     * no order, the handles run at same time
+     */
+    NONE,
+    /**
+     * one serial lane for each registered object, shared by its SUBSCRIBER methods
+     */
+    SUBSCRIBER,
+    /**
+     * one serial lane for each message id, shared by the MESSAGE methods of all objects
+     */
+    MESSAGE
+  }
 }
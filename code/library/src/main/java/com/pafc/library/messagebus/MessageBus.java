@@ -1,22 +1,20 @@
 package com.pafc.library.messagebus;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import android.annotation.SuppressLint;
 import android.os.Handler;
 import android.os.Message;
 import android.os.Process;
+import android.os.SystemClock;
 import android.util.SparseArray;
 
 /**
@@ -32,7 +30,11 @@ import android.util.SparseArray;
  * </p>
  * </li><li>4.use the {@link #post} method to post the message, you can pass the object and set
  * delay</li> <li>5. if don't need to process the message, invoke {@link #unRegister(Object)}</li>
- * <li>6. finally, invoke {@link #release()} to release this intance</li> </p>
+ * <li>6. finally, invoke {@link #release()} to release this intance</li> <li>7. optional, add the
+ * messagebus-compiler annotation processor to the build and pass the generated index to
+ * {@link #addSubscriberIndex(ISubscriberIndex)}, so the first register of a class does not scan its
+ * methods by reflection</li> <li>8. optional, configure the thread pool of the async handles with
+ * the {@link Builder}</li> </p>
  *
  * @author idiot2ger
  */
@@ -42,40 +44,99 @@ public final class MessageBus implements IMessageBus {
 
     private static final int DEFAULT_THREAD_NUMS = 5;
 
-    // all class cache
-    private Set<Class<?>> mClassCache = new HashSet<Class<?>>();
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
 
-    // current register object cache, if unreigster, will remove this object from set
-    //TODO: will use weakreference to instead of directed object reference
-    private Map<Class<?>, Set<Object>> mObjectCache = new HashMap<Class<?>, Set<Object>>();
+    private static final long DEFAULT_BLOCK_TIMEOUT = 100;
 
-    // method cache
-    private SparseArray<List<MethodProcessor>> mProcessorCache = new SparseArray<List<MethodProcessor>>();
+    private static final int DEFAULT_STICKY_CAPACITY = 64;
 
-    private static MessageBus mInstance;
+    /**
+     * what to do with an async handle when the queue of the thread pool is full
+     */
+    public static enum RejectionPolicy {
+        /**
+         * run the handle in the posting thread, this slows down the poster. the posts are dispatched on
+         * the main thread, so a burst over the queue capacity runs the async handles on the main thread,
+         * opt in only when the handles are short
+         */
+        CALLER_RUNS,
+        /**
+         * drop the oldest queued handle, then queue this one (default), the posting thread never waits
+         */
+        DROP_OLDEST,
+        /**
+         * drop this handle
+         */
+        DROP_NEWEST,
+        /**
+         * wait for the queue at most the block timeout, then drop this handle, the wait is on the main
+         * thread for the posts dispatched there
+         */
+        BLOCK
+    }
 
-    private Handler mHandler;
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    // method cache of all registered classes, only used under the register lock
+    private Map<Class<?>, MethodProcessor[]> mProcessorCache = new HashMap<Class<?>, MethodProcessor[]>();
+
+    // the dispatch table, one flat immutable (target, invoker, async) array per message id. the
+    // snapshot is never changed after it is published, register and unRegister rebuild the arrays
+    // of the changed ids and swap the reference, so a post is one array scan without lock. the
+    // registered objects are held strongly until unRegister
+    private final AtomicReference<SparseArray<Subscription[]>> mSubscriptions =
+        new AtomicReference<SparseArray<Subscription[]>>(new SparseArray<Subscription[]>());
+
+    // build time subscriber indexes, asked before the reflection scan
+    private List<ISubscriberIndex> mSubscriberIndexes = new ArrayList<ISubscriberIndex>();
+
+    // serialize the writers of the subscription snapshot
+    private final Object mRegisterLock = new Object();
+
+    // the waiting coalesced, debounced and throttled posts of each message id
+    private final SparseArray<PendingPost> mPendingPosts = new SparseArray<PendingPost>();
+
+    private final AtomicLong mCollapsedPostCount = new AtomicLong();
+
+    private final AtomicLong mStickySequence = new AtomicLong();
+
+    // the last object of each sticky message id, delivered to the new registered objects
+    private final StickyCache mStickyCache;
+
+    // the serial lanes of the MessageAsyncHandle.SerialMode.MESSAGE methods, only used under the register lock
+    private SparseArray<SerialLane> mMessageLanes = new SparseArray<SerialLane>();
+
+    // read without lock by getInstance, written under the class lock
+    private static volatile MessageBus mInstance;
 
-    private ExecutorService mExecutorService;
+    private Handler mHandler;
 
-    private final AtomicInteger mCounter = new AtomicInteger(0);
+    private AsyncExecutor mExecutorService;
 
     private volatile boolean isReleased;
 
     /**
-     * get message bus instance
+     * get message bus instance, created with the default {@link Builder} settings if
+     * {@link Builder#installDefaultInstance()} is not invoked before
      *
      * @return
      */
     public static MessageBus getInstance() {
-        if (mInstance == null) {
-            mInstance = new MessageBus();
+        MessageBus instance = mInstance;
+        if (instance == null) {
+            synchronized (MessageBus.class) {
+                instance = mInstance;
+                if (instance == null) {
+                    instance = new Builder().build();
+                    mInstance = instance;
+                }
+            }
         }
-        return mInstance;
+        return instance;
     }
 
     @SuppressLint("HandlerLeak")
-    private MessageBus() {
+    private MessageBus(Builder builder) {
         mHandler = new Handler() {
             @Override
             public void handleMessage(Message msg) {
@@ -86,91 +147,366 @@ public final class MessageBus implements IMessageBus {
         };
 
         // thread pool
-        mExecutorService = Executors.newFixedThreadPool(DEFAULT_THREAD_NUMS, new ThreadFactory() {
-            @Override
-            public Thread newThread(final Runnable r) {
-                return new Thread() {
-                    @Override
-                    public void run() {
-                        setName("async_handle #" + mCounter.incrementAndGet());
-                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
-                        r.run();
-                    }
-                };
+        mExecutorService = new AsyncExecutor(builder.mPoolSize, builder.mQueueCapacity, builder.mThreadPriority,
+            builder.mRejectionPolicy, builder.mBlockTimeout);
+
+        mStickyCache = new StickyCache(builder.mStickyCapacity);
+    }
+
+    /**
+     * <pre>
+     * the message bus settings, such as:
+     * new MessageBus.Builder().setPoolSize(3).setQueueCapacity(256)
+     *     .setRejectionPolicy(MessageBus.RejectionPolicy.DROP_OLDEST).installDefaultInstance();
+     * </pre>
+     */
+    public static class Builder {
+
+        private int mPoolSize = DEFAULT_THREAD_NUMS;
+        private int mQueueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private RejectionPolicy mRejectionPolicy = RejectionPolicy.DROP_OLDEST;
+        private long mBlockTimeout = DEFAULT_BLOCK_TIMEOUT;
+        private int mThreadPriority = Process.THREAD_PRIORITY_BACKGROUND;
+        private int mStickyCapacity = DEFAULT_STICKY_CAPACITY;
+
+        /**
+         * the thread count of the async handle pool
+         *
+         * @param poolSize
+         * @return
+         */
+        public Builder setPoolSize(int poolSize) {
+            if (poolSize > 0) {
+                mPoolSize = poolSize;
             }
-        });
+            return this;
+        }
+
+        /**
+         * the max count of the async handles waiting for a thread
+         *
+         * @param queueCapacity
+         * @return
+         */
+        public Builder setQueueCapacity(int queueCapacity) {
+            if (queueCapacity > 0) {
+                mQueueCapacity = queueCapacity;
+            }
+            return this;
+        }
+
+        public Builder setRejectionPolicy(RejectionPolicy policy) {
+            if (policy != null) {
+                mRejectionPolicy = policy;
+            }
+            return this;
+        }
+
+        /**
+         * the max wait time of {@link RejectionPolicy#BLOCK}
+         *
+         * @param timeout
+         * @param unit
+         * @return
+         */
+        public Builder setBlockTimeout(long timeout, TimeUnit unit) {
+            if (timeout >= 0) {
+                mBlockTimeout = unit.toMillis(timeout);
+            }
+            return this;
+        }
+
+        /**
+         * the thread priority of the async handle pool, such as {@link Process#THREAD_PRIORITY_BACKGROUND}
+         *
+         * @param priority
+         * @return
+         */
+        public Builder setThreadPriority(int priority) {
+            if (priority >= Process.THREAD_PRIORITY_URGENT_DISPLAY && priority <= Process.THREAD_PRIORITY_LOWEST) {
+                mThreadPriority = priority;
+            }
+            return this;
+        }
+
+        /**
+         * the max count of the sticky message ids, the least recently posted id is removed first
+         *
+         * @param capacity
+         * @return
+         */
+        public Builder setStickyCapacity(int capacity) {
+            if (capacity > 0) {
+                mStickyCapacity = capacity;
+            }
+            return this;
+        }
+
+        public MessageBus build() {
+            return new MessageBus(this);
+        }
+
+        /**
+         * build the instance returned by {@link #getInstance()}, MUST be invoked before the first
+         * {@link #getInstance()}
+         *
+         * @return
+         */
+        public MessageBus installDefaultInstance() {
+            synchronized (MessageBus.class) {
+                if (mInstance != null) {
+                    throw new IllegalStateException("the default message bus instance already exists");
+                }
+                mInstance = build();
+                return mInstance;
+            }
+        }
+    }
+
+    /**
+     * @return the count of the async handles waiting for a thread now
+     */
+    public int getQueuedTaskCount() {
+        return mExecutorService.getQueuedCount();
+    }
+
+    /**
+     * @return the count of the async handles which found the queue full, whatever the
+     * {@link RejectionPolicy} did with them
+     */
+    public long getRejectedTaskCount() {
+        return mExecutorService.getRejectedCount();
+    }
+
+    /**
+     * @return the count of the async handles which were dropped and never run
+     */
+    public long getDroppedTaskCount() {
+        return mExecutorService.getDroppedCount();
     }
 
     @Override
-    public synchronized void register(Object object) {
+    public void register(Object object) {
         if (object == null) {
             throw new IllegalArgumentException("register to the message bus, the object can not be NULL");
         }
-        findAnnotationAndCache(object);
+        final Subscription[] newObjectSubscriptions;
+        // the sticky posts of the new subscriptions, held only until they are delivered
+        StickyPost[] newStickyPosts = null;
+        int newCount = 0;
+        synchronized (mRegisterLock) {
+            final MethodProcessor[] processors = findAnnotationAndCache(object.getClass());
+            if (processors.length == 0) {
+                return;
+            }
+
+            final SparseArray<Subscription[]> snapshot = mSubscriptions.get().clone();
+            newObjectSubscriptions = new Subscription[processors.length];
+            final boolean hasSticky = mStickyCache.size() > 0;
+            SerialLane subscriberLane = null;
+            for (MethodProcessor processor : processors) {
+                final Subscription[] subscriptions = snapshot.get(processor.messageId, NO_SUBSCRIPTIONS);
+                if (indexOfSubscription(subscriptions, processor, object) < 0) {
+                    SerialLane lane = null;
+                    if (processor.isAsync && processor.serialMode == MessageAsyncHandle.SerialMode.SUBSCRIBER) {
+                        if (subscriberLane == null) {
+                            subscriberLane = new SerialLane(mExecutorService);
+                        }
+                        lane = subscriberLane;
+                    } else if (processor.isAsync && processor.serialMode == MessageAsyncHandle.SerialMode.MESSAGE) {
+                        lane = mMessageLanes.get(processor.messageId);
+                        if (lane == null) {
+                            lane = new SerialLane(mExecutorService);
+                            mMessageLanes.put(processor.messageId, lane);
+                        }
+                    }
+
+                    // the sticky post is taken before the subscription is published, so its queued post skips it
+                    final Object sticky = hasSticky ? mStickyCache.get(processor.messageId) : StickyCache.NONE;
+                    final StickyPost stickyPost = sticky == StickyCache.NONE ? null : (StickyPost) sticky;
+                    final Subscription subscription = new Subscription(object, processor, lane,
+                        stickyPost == null ? 0 : stickyPost.sequence);
+                    final Subscription[] newSubscriptions = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+                    newSubscriptions[subscriptions.length] = subscription;
+                    snapshot.put(processor.messageId, newSubscriptions);
+                    if (stickyPost != null) {
+                        if (newStickyPosts == null) {
+                            newStickyPosts = new StickyPost[processors.length];
+                        }
+                        newStickyPosts[newCount] = stickyPost;
+                    }
+                    newObjectSubscriptions[newCount++] = subscription;
+                }
+            }
+            if (newCount > 0) {
+                mSubscriptions.set(snapshot);
+            }
+        }
+
+        // deliver the sticky messages out of the lock, the handles may register too
+        if (newStickyPosts == null) {
+            return;
+        }
+        final boolean isMainThread = mHandler.getLooper().getThread() == Thread.currentThread();
+        for (int i = 0; i < newCount; i++) {
+            final Subscription subscription = newObjectSubscriptions[i];
+            final StickyPost stickyPost = newStickyPosts[i];
+            if (stickyPost == null || isReleased) {
+                continue;
+            }
+            if (subscription.isAsync || isMainThread) {
+                invokeMethod(subscription, stickyPost.object);
+            } else {
+                // a MessageHandle method runs on the main thread, even for a sticky message
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isReleased && isSubscribed(subscription)) {
+                            invokeMethod(subscription, stickyPost.object);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean isSubscribed(Subscription subscription) {
+        final Subscription[] subscriptions = mSubscriptions.get().get(subscription.processor.messageId);
+        if (subscriptions != null) {
+            for (Subscription current : subscriptions) {
+                if (current == subscription) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * add a subscriber index generated by the messagebus-compiler annotation processor, the classes
+     * found in the index will skip the reflection scan when they are registered the first time
+     *
+     * @param index
+     */
+    public void addSubscriberIndex(ISubscriberIndex index) {
+        if (index == null) {
+            throw new IllegalArgumentException("the subscriber index can not be NULL");
+        }
+        synchronized (mRegisterLock) {
+            if (!mSubscriberIndexes.contains(index)) {
+                mSubscriberIndexes.add(index);
+            }
+        }
     }
 
     @Override
-    public synchronized void unRegister(Object object) {
+    public void unRegister(Object object) {
         if (object == null) {
             throw new IllegalArgumentException("unRegister to the message bus, the object can not be NULL");
         }
-        // remove from object cache
-        final Class<?> cls = object.getClass();
-        Set<Object> objSet = mObjectCache.get(cls);
-        if (objSet != null) {
-            objSet.remove(object);
+        synchronized (mRegisterLock) {
+            final MethodProcessor[] processors = mProcessorCache.get(object.getClass());
+            if (processors == null || processors.length == 0) {
+                return;
+            }
+
+            // remove from the snapshot copy
+            final SparseArray<Subscription[]> snapshot = mSubscriptions.get().clone();
+            boolean isChanged = false;
+            for (MethodProcessor processor : processors) {
+                final Subscription[] subscriptions = snapshot.get(processor.messageId, NO_SUBSCRIPTIONS);
+                final int index = indexOfSubscription(subscriptions, processor, object);
+                if (index < 0) {
+                    continue;
+                }
+
+                if (subscriptions.length > 1) {
+                    final Subscription[] newSubscriptions = new Subscription[subscriptions.length - 1];
+                    System.arraycopy(subscriptions, 0, newSubscriptions, 0, index);
+                    System.arraycopy(subscriptions, index + 1, newSubscriptions, index, newSubscriptions.length - index);
+                    snapshot.put(processor.messageId, newSubscriptions);
+                } else {
+                    snapshot.remove(processor.messageId);
+                }
+                isChanged = true;
+            }
+            if (isChanged) {
+                mSubscriptions.set(snapshot);
+            }
         }
     }
 
-    private synchronized void processMessage(final Message message) {
+    // the registered objects keep the equals semantic of the former object set
+    private static int indexOfSubscription(Subscription[] subscriptions, MethodProcessor processor, Object object) {
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i].processor == processor && subscriptions[i].target.equals(object)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void processMessage(final Message message) {
         final int messageId = message.what;
-        final List<MethodProcessor> processorList = mProcessorCache.get(messageId);
-        final Object messagePassObj = message.obj;
-        if (processorList != null) {
+        Object messagePassObj = message.obj;
+        if (messagePassObj instanceof PendingPost) {
+            final PendingPost pendingPost = (PendingPost) messagePassObj;
+            synchronized (pendingPost) {
+                // a debounced post was removed after this message was taken from the queue
+                if (!pendingPost.isPending) {
+                    return;
+                }
+                pendingPost.isPending = false;
+                pendingPost.lastDispatchTime = SystemClock.uptimeMillis();
+                messagePassObj = pendingPost.object;
+                pendingPost.object = null;
+            }
+        }
+        StickyPost stickyPost = null;
+        if (messagePassObj instanceof StickyPost) {
+            stickyPost = (StickyPost) messagePassObj;
+            messagePassObj = stickyPost.object;
+        }
+
+        final Subscription[] subscriptions = mSubscriptions.get().get(messageId);
+        if (subscriptions != null) {
             // loop
-            for (MethodProcessor p : processorList) {
+            for (Subscription subscription : subscriptions) {
                 if (isReleased) {
                     break;
                 }
-                Set<Object> objectSet = mObjectCache.get(p.cls);
-                if (objectSet != null) {
-                    for (Object obj : objectSet) {
-                        invokeMethod(p, obj, messagePassObj);
-                    }
+                if (stickyPost != null && subscription.stickySequence == stickyPost.sequence) {
+                    // registered after the sticky post, the register delivered it already
+                    continue;
                 }
+                invokeMethod(subscription, messagePassObj);
             }
         }
     }
 
 
-    private void invokeMethod(final MethodProcessor processor, final Object intanceObj, final Object argObj) {
-        final Class<?> pCls = processor.parameterCls;
-        final Method method = processor.method;
-        if (processor.isAsync) {
+    private void invokeMethod(final Subscription subscription, final Object argObj) {
+        if (subscription.isAsync) {
             final Runnable runnable = new Runnable() {
                 @Override
                 public void run() {
-                    invokeMethod2(pCls, method, intanceObj, argObj);
+                    invokeMethod2(subscription.invoker, subscription.target, argObj);
                 }
             };
-            mExecutorService.execute(runnable);
+            if (subscription.lane != null) {
+                subscription.lane.execute(runnable);
+            } else {
+                mExecutorService.execute(runnable);
+            }
         } else {
-            invokeMethod2(pCls, method, intanceObj, argObj);
+            invokeMethod2(subscription.invoker, subscription.target, argObj);
         }
     }
 
-    private void invokeMethod2(Class<?> parameterCls, Method method, Object intanceObj, Object argObj) {
+    private void invokeMethod2(IMethodInvoker invoker, Object intanceObj, Object argObj) {
         try {
-            if (parameterCls != null) {
-                method.invoke(intanceObj, parameterCls.cast(argObj));
-            } else {
-                method.invoke(intanceObj, (Object[]) null);
-            }
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
+            invoker.invoke(intanceObj, argObj);
+        } catch (RuntimeException e) {
             e.printStackTrace();
         }
     }
@@ -208,96 +544,353 @@ public final class MessageBus implements IMessageBus {
         processMessage(message);
     }
 
-    private void findAnnotationAndCache(Object object) {
-        final Class<?> cls = object.getClass();
-        // search current cache
-        if (!mClassCache.contains(cls)) {
-            final Method[] methods = cls.getMethods();
-            if (methods != null) {
-                boolean isMH, isAMH;
-                for (Method method : methods) {
-                    isMH = method.isAnnotationPresent(MessageHandle.class);
-                    isAMH = method.isAnnotationPresent(MessageAsyncHandle.class);
-                    if (isMH && isAMH) {
-                        // if method have MessageHandle and MessageAsyncHandle sametime will throws exception
-                        throw new RuntimeException("class:" + cls.getName() + ", method:" + method.getName()
-                            + " cannot has MessageHandle and MessageAsyncHandle annotations at same time");
-                    } else {
-                        if (isMH || isAMH) {
-
-                            // here check the method parameter argus
-                            final Class<?>[] argClsArray = method.getParameterTypes();
-                            if (argClsArray != null && argClsArray.length > 1) {
-                                throw new RuntimeException("class:" + cls.getName() + ", method:" + method.getName()
-                                    + " MUST have less and equal than one parameters");
-                            }
-
-
-                            // create the processor
-                            final MethodProcessor processor = new MethodProcessor();
-                            processor.cls = cls;
-                            processor.parameterCls = (argClsArray == null || argClsArray.length == 0) ? null : argClsArray[0];
-                            if (isMH) {
-                                processor.messageId = method.getAnnotation(MessageHandle.class).value();
-                            } else if (isAMH) {
-                                processor.messageId = method.getAnnotation(MessageAsyncHandle.class).value();
-                            }
-                            processor.method = method;
-                            processor.isAsync = isAMH;
-
-
-                            List<MethodProcessor> processorList = mProcessorCache.get(processor.messageId);
-                            if (processorList == null) {
-                                processorList = new ArrayList<MethodProcessor>();
-                                mProcessorCache.put(processor.messageId, processorList);
-                            }
-
-                            if (!processorList.contains(processor)) {
-                                processorList.add(processor);
-                            }
-                        }
+    @Override
+    public void postCoalesced(int messageId, Object object) {
+        final PendingPost pendingPost = getPendingPost(messageId);
+        synchronized (pendingPost) {
+            pendingPost.object = object;
+            if (pendingPost.isPending) {
+                mCollapsedPostCount.incrementAndGet();
+                return;
+            }
+            pendingPost.isPending = true;
+        }
+        mHandler.sendMessage(mHandler.obtainMessage(messageId, pendingPost));
+    }
+
+    @Override
+    public void postDebounced(int messageId, Object object, long window) {
+        final PendingPost pendingPost = getPendingPost(messageId);
+        synchronized (pendingPost) {
+            pendingPost.object = object;
+            if (pendingPost.isPending) {
+                mHandler.removeMessages(messageId, pendingPost);
+                mCollapsedPostCount.incrementAndGet();
+            }
+            pendingPost.isPending = true;
+            mHandler.sendMessageDelayed(mHandler.obtainMessage(messageId, pendingPost), window);
+        }
+    }
+
+    @Override
+    public void postThrottled(int messageId, Object object, long window) {
+        final PendingPost pendingPost = getPendingPost(messageId);
+        final long delay;
+        synchronized (pendingPost) {
+            pendingPost.object = object;
+            if (pendingPost.isPending) {
+                mCollapsedPostCount.incrementAndGet();
+                return;
+            }
+            pendingPost.isPending = true;
+            delay = Math.max(0, pendingPost.lastDispatchTime + window - SystemClock.uptimeMillis());
+        }
+        mHandler.sendMessageDelayed(mHandler.obtainMessage(messageId, pendingPost), delay);
+    }
+
+    @Override
+    public void postBatch(int[] messageIds, Object[] objects) {
+        if (messageIds == null || (objects != null && objects.length != messageIds.length)) {
+            throw new IllegalArgumentException("post batch, the objects MUST be NULL or as many as the message ids");
+        }
+        // copy, the caller may reuse the arrays
+        final int[] batchIds = messageIds.clone();
+        final Object[] batchObjects = objects == null ? null : objects.clone();
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isReleased) {
+                    processBatch(batchIds, batchObjects);
+                }
+            }
+        });
+    }
+
+    /**
+     * deliver the batch in order with one snapshot, the async handles without serial lane are run
+     * in order by one pool task
+     */
+    private void processBatch(int[] messageIds, Object[] objects) {
+        final SparseArray<Subscription[]> snapshot = mSubscriptions.get();
+        Subscription[] asyncSubscriptions = null;
+        Object[] asyncObjects = null;
+        int asyncCount = 0;
+        for (int i = 0; i < messageIds.length; i++) {
+            final Subscription[] subscriptions = snapshot.get(messageIds[i]);
+            if (subscriptions == null) {
+                continue;
+            }
+            final Object messagePassObj = objects == null ? null : objects[i];
+            for (Subscription subscription : subscriptions) {
+                if (isReleased) {
+                    return;
+                }
+                if (subscription.isAsync && subscription.lane == null) {
+                    if (asyncSubscriptions == null) {
+                        asyncSubscriptions = new Subscription[8];
+                        asyncObjects = new Object[8];
+                    } else if (asyncCount == asyncSubscriptions.length) {
+                        asyncSubscriptions = Arrays.copyOf(asyncSubscriptions, asyncCount * 2);
+                        asyncObjects = Arrays.copyOf(asyncObjects, asyncCount * 2);
                     }
+                    asyncSubscriptions[asyncCount] = subscription;
+                    asyncObjects[asyncCount] = messagePassObj;
+                    asyncCount++;
+                } else {
+                    invokeMethod(subscription, messagePassObj);
                 }
             }
+        }
+
+        if (asyncCount > 0) {
+            final Subscription[] batchSubscriptions = asyncSubscriptions;
+            final Object[] batchObjects = asyncObjects;
+            final int batchCount = asyncCount;
+            mExecutorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < batchCount; i++) {
+                        invokeMethod2(batchSubscriptions[i].invoker, batchSubscriptions[i].target, batchObjects[i]);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void postSticky(int messageId, Object object) {
+        final StickyPost stickyPost = new StickyPost(object, mStickySequence.incrementAndGet());
+        mStickyCache.put(messageId, stickyPost);
+        mHandler.sendMessage(mHandler.obtainMessage(messageId, stickyPost));
+    }
+
+    @Override
+    public Object getStickyMessage(int messageId) {
+        final Object object = mStickyCache.get(messageId);
+        return object == StickyCache.NONE ? null : ((StickyPost) object).object;
+    }
+
+    @Override
+    public void removeStickyMessage(int messageId) {
+        mStickyCache.remove(messageId);
+    }
+
+    @Override
+    public void clearStickyMessages() {
+        mStickyCache.clear();
+    }
+
+    private PendingPost getPendingPost(int messageId) {
+        synchronized (mPendingPosts) {
+            PendingPost pendingPost = mPendingPosts.get(messageId);
+            if (pendingPost == null) {
+                pendingPost = new PendingPost();
+                mPendingPosts.put(messageId, pendingPost);
+            }
+            return pendingPost;
+        }
+    }
 
+    /**
+     * @return the count of the coalesced, debounced and throttled posts which were merged into a
+     * waiting post instead of being delivered
+     */
+    public long getCollapsedPostCount() {
+        return mCollapsedPostCount.get();
+    }
+
+    private MethodProcessor[] findAnnotationAndCache(Class<?> cls) {
+        // search current cache
+        MethodProcessor[] processors = mProcessorCache.get(cls);
+        if (processors == null) {
+            final List<MethodProcessor> processorList = new ArrayList<MethodProcessor>();
+            final SubscriberInfo subscriberInfo = findSubscriberInfo(cls);
+            if (subscriberInfo != null) {
+                cacheIndexedMethods(cls, subscriberInfo, processorList);
+            } else {
+                cacheAnnotatedMethods(cls, processorList);
+            }
 
             // add to the class cache
-            mClassCache.add(cls);
+            processors = processorList.toArray(new MethodProcessor[processorList.size()]);
+            mProcessorCache.put(cls, processors);
         }
+        return processors;
+    }
+
+    private SubscriberInfo findSubscriberInfo(Class<?> cls) {
+        for (ISubscriberIndex index : mSubscriberIndexes) {
+            final SubscriberInfo info = index.getSubscriberInfo(cls);
+            if (info != null) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private void cacheIndexedMethods(Class<?> cls, SubscriberInfo subscriberInfo, List<MethodProcessor> processorList) {
+        for (SubscriberInfo.MethodInfo methodInfo : subscriberInfo.getMethods()) {
+            IMethodInvoker invoker = methodInfo.invoker;
+            if (invoker == null) {
+                final Method method;
+                try {
+                    method = methodInfo.parameterCls == null ? cls.getMethod(methodInfo.methodName)
+                        : cls.getMethod(methodInfo.methodName, methodInfo.parameterCls);
+                } catch (NoSuchMethodException e) {
+                    throw new RuntimeException("class:" + cls.getName() + ", method:" + methodInfo.methodName
+                        + " not found, the subscriber index is out of date", e);
+                }
+                invoker = new ReflectMethodInvoker(method);
+            }
 
-        // add object to cache
-        Set<Object> objectSet = mObjectCache.get(cls);
-        if (objectSet == null) {
-            objectSet = new HashSet<Object>();
-            mObjectCache.put(cls, objectSet);
+            final MethodProcessor processor = new MethodProcessor();
+            processor.cls = cls;
+            processor.parameterCls = methodInfo.parameterCls;
+            processor.messageId = methodInfo.messageId;
+            processor.methodName = methodInfo.methodName;
+            processor.invoker = invoker;
+            processor.isAsync = methodInfo.isAsync;
+            processor.serialMode = methodInfo.serialMode;
+            cacheProcessor(processorList, processor);
+        }
+    }
+
+    private void cacheAnnotatedMethods(Class<?> cls, List<MethodProcessor> processorList) {
+        final Method[] methods = cls.getMethods();
+        if (methods != null) {
+            boolean isMH, isAMH;
+            for (Method method : methods) {
+                isMH = method.isAnnotationPresent(MessageHandle.class);
+                isAMH = method.isAnnotationPresent(MessageAsyncHandle.class);
+                if (isMH && isAMH) {
+                    // if method have MessageHandle and MessageAsyncHandle sametime will throws exception
+                    throw new RuntimeException("class:" + cls.getName() + ", method:" + method.getName()
+                        + " cannot has MessageHandle and MessageAsyncHandle annotations at same time");
+                } else {
+                    if (isMH || isAMH) {
+
+                        // here check the method parameter argus
+                        final Class<?>[] argClsArray = method.getParameterTypes();
+                        if (argClsArray != null && argClsArray.length > 1) {
+                            throw new RuntimeException("class:" + cls.getName() + ", method:" + method.getName()
+                                + " MUST have less and equal than one parameters");
+                        }
+
+
+                        // create the processor
+                        final MethodProcessor processor = new MethodProcessor();
+                        processor.cls = cls;
+                        processor.parameterCls = (argClsArray == null || argClsArray.length == 0) ? null : argClsArray[0];
+                        if (isMH) {
+                            processor.messageId = method.getAnnotation(MessageHandle.class).value();
+                        } else if (isAMH) {
+                            final MessageAsyncHandle annotation = method.getAnnotation(MessageAsyncHandle.class);
+                            processor.messageId = annotation.value();
+                            processor.serialMode = annotation.serial();
+                        }
+                        processor.methodName = method.getName();
+                        processor.invoker = new ReflectMethodInvoker(method);
+                        processor.isAsync = isAMH;
+                        cacheProcessor(processorList, processor);
+                    }
+                }
+            }
+        }
+    }
+
+    private void cacheProcessor(List<MethodProcessor> processorList, MethodProcessor processor) {
+        if (!processorList.contains(processor)) {
+            processorList.add(processor);
         }
-        objectSet.add(object);
     }
 
     class MethodProcessor {
         Class<?> cls;
         int messageId;
-        Method method;
+        String methodName;
+        IMethodInvoker invoker;
         boolean isAsync;
+        MessageAsyncHandle.SerialMode serialMode = MessageAsyncHandle.SerialMode.NONE;
         Class<?> parameterCls;
 
         @Override
         public boolean equals(Object o) {
             if (o instanceof MethodProcessor) {
-                return cls.equals(o.getClass()) && method.equals(((MethodProcessor) o).method);
+                final MethodProcessor other = (MethodProcessor) o;
+                return cls == other.cls && parameterCls == other.parameterCls && methodName.equals(other.methodName);
             }
             return false;
         }
 
+        @Override
+        public int hashCode() {
+            return 31 * cls.hashCode() + methodName.hashCode();
+        }
+
+    }
+
+    /**
+     * one entry of the dispatch table: a registered object and one of its methods
+     */
+    static final class Subscription {
+        final Object target;
+        final IMethodInvoker invoker;
+        final boolean isAsync;
+        // the serial lane of the async handle, null to run in any pool thread
+        final SerialLane lane;
+        final MethodProcessor processor;
+        // the sequence of the sticky post found by the register, 0 if none. not the post itself, the
+        // subscription must not keep a sticky object alive after it is removed from the cache
+        final long stickySequence;
+
+        Subscription(Object target, MethodProcessor processor, SerialLane lane, long stickySequence) {
+            this.target = target;
+            this.invoker = processor.invoker;
+            this.isAsync = processor.isAsync;
+            this.lane = lane;
+            this.processor = processor;
+            this.stickySequence = stickySequence;
+        }
+    }
+
+    /**
+     * the cached object of a sticky message id, and the object of its queued post. the queued post is
+     * not delivered again to the subscriptions which got the same sticky post on register
+     */
+    private static final class StickyPost {
+        final Object object;
+        // unique in the bus, from 1
+        final long sequence;
+
+        StickyPost(Object object, long sequence) {
+            this.object = object;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * the waiting object of a coalesced, debounced or throttled message id, it is the message object
+     * in the handler queue. all fields are guarded by the instance lock
+     */
+    private static final class PendingPost {
+        Object object;
+        boolean isPending;
+        long lastDispatchTime = Long.MIN_VALUE / 2;
     }
 
     @Override
-    public synchronized void release() {
-        mHandler.removeCallbacksAndMessages(null);
-        isReleased = true;
-        mExecutorService.shutdownNow();
-        mClassCache.clear();
-        mObjectCache.clear();
-        mProcessorCache.clear();
+    public void release() {
+        synchronized (mRegisterLock) {
+            mHandler.removeCallbacksAndMessages(null);
+            isReleased = true;
+            mExecutorService.shutdownNow();
+            mProcessorCache.clear();
+            mMessageLanes.clear();
+            mStickyCache.clear();
+            synchronized (mPendingPosts) {
+                mPendingPosts.clear();
+            }
+            mSubscriptions.set(new SparseArray<Subscription[]>());
+        }
     }
 }
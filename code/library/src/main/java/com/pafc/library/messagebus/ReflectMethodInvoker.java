@@ -0,0 +1,60 @@
+package com.pafc.library.messagebus;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * the reflection fallback of {@link IMethodInvoker}, the access check is turned off once and the
+ * argument array is reused, so a call does not allocate
+ *
+ * @author idiot2ger
+ */
+final class ReflectMethodInvoker implements IMethodInvoker {
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    // one argument array per thread, Method#invoke copies the arguments before calling the method
+    private static final ThreadLocal<Object[]> sArguments = new ThreadLocal<Object[]>() {
+        @Override
+        protected Object[] initialValue() {
+            return new Object[1];
+        }
+    };
+
+    private final Method mMethod;
+
+    private final boolean hasParameter;
+
+    ReflectMethodInvoker(Method method) {
+        mMethod = method;
+        mMethod.setAccessible(true);
+        hasParameter = method.getParameterTypes().length > 0;
+    }
+
+    @Override
+    public void invoke(Object target, Object argument) {
+        try {
+            if (hasParameter) {
+                final Object[] arguments = sArguments.get();
+                arguments[0] = argument;
+                try {
+                    mMethod.invoke(target, arguments);
+                } finally {
+                    arguments[0] = null;
+                }
+            } else {
+                mMethod.invoke(target, NO_ARGUMENTS);
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
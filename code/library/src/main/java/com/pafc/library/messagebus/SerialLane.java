@@ -0,0 +1,70 @@
+package com.pafc.library.messagebus;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * run the tasks one at a time and in order, on the threads of the shared {@link AsyncExecutor}.
+ * at most one drain task of the lane is in the pool, the enqueue is lock free
+ *
+ * @author idiot2ger
+ */
+final class SerialLane implements Runnable {
+
+    // give the pool thread back after this many tasks, so the lanes share the pool fairly
+    private static final int MAX_DRAIN_COUNT = 16;
+
+    private final ConcurrentLinkedQueue<Runnable> mTasks = new ConcurrentLinkedQueue<Runnable>();
+
+    private final AtomicBoolean isScheduled = new AtomicBoolean();
+
+    private final AsyncExecutor mExecutor;
+
+    SerialLane(AsyncExecutor executor) {
+        mExecutor = executor;
+    }
+
+    void execute(Runnable task) {
+        mTasks.offer(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!mTasks.isEmpty() && isScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < MAX_DRAIN_COUNT; i++) {
+                final Runnable task = mTasks.poll();
+                if (task == null) {
+                    break;
+                }
+                task.run();
+            }
+        } finally {
+            isScheduled.set(false);
+            schedule();
+        }
+    }
+
+    /**
+     * the drain task was dropped by the {@link MessageBus.RejectionPolicy}, drop the waiting tasks
+     * too. a task enqueued after the clear saw the lane scheduled, so the lane is scheduled again
+     * for it, like at the end of {@link #run()}, it is dropped again if the pool is still full
+     *
+     * @return the dropped task count
+     */
+    int drop() {
+        int count = 0;
+        while (mTasks.poll() != null) {
+            count++;
+        }
+        isScheduled.set(false);
+        schedule();
+        return count;
+    }
+}
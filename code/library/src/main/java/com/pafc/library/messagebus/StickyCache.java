@@ -0,0 +1,97 @@
+package com.pafc.library.messagebus;
+
+import java.util.Arrays;
+
+/**
+ * the last posted object of each sticky message id. the ids are kept in a sorted int array, so
+ * there is no boxing and no entry object, the least recently posted id is evicted at the capacity
+ *
+ * @author idiot2ger
+ */
+final class StickyCache {
+
+    /**
+     * returned by {@link #get(int)} when the id has no sticky object, the object itself can be null
+     */
+    static final Object NONE = new Object();
+
+    private final int mCapacity;
+
+    private int[] mKeys = new int[8];
+    private Object[] mValues = new Object[8];
+    // the post sequence of each id, to find the least recently posted one
+    private long[] mSequences = new long[8];
+    private int mSize;
+    private long mSequence;
+
+    StickyCache(int capacity) {
+        mCapacity = capacity;
+    }
+
+    synchronized void put(int key, Object value) {
+        int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (index < 0) {
+            if (mSize == mCapacity) {
+                removeAt(indexOfEldest());
+                index = Arrays.binarySearch(mKeys, 0, mSize, key);
+            }
+            index = ~index;
+            if (mSize == mKeys.length) {
+                final int newLength = Math.min(mKeys.length * 2, Math.max(mCapacity, 1));
+                mKeys = Arrays.copyOf(mKeys, newLength);
+                mValues = Arrays.copyOf(mValues, newLength);
+                mSequences = Arrays.copyOf(mSequences, newLength);
+            }
+            System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+            System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+            System.arraycopy(mSequences, index, mSequences, index + 1, mSize - index);
+            mKeys[index] = key;
+            mSize++;
+        }
+        mValues[index] = value;
+        mSequences[index] = mSequence++;
+    }
+
+    /**
+     * @param key
+     * @return the sticky object, or {@link #NONE}
+     */
+    synchronized Object get(int key) {
+        final int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        return index < 0 ? NONE : mValues[index];
+    }
+
+    synchronized void remove(int key) {
+        final int index = Arrays.binarySearch(mKeys, 0, mSize, key);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    synchronized void clear() {
+        Arrays.fill(mValues, 0, mSize, null);
+        mSize = 0;
+    }
+
+    synchronized int size() {
+        return mSize;
+    }
+
+    private int indexOfEldest() {
+        int eldest = 0;
+        for (int i = 1; i < mSize; i++) {
+            if (mSequences[i] < mSequences[eldest]) {
+                eldest = i;
+            }
+        }
+        return eldest;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(mKeys, index + 1, mKeys, index, mSize - index - 1);
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        System.arraycopy(mSequences, index + 1, mSequences, index, mSize - index - 1);
+        mSize--;
+        mValues[mSize] = null;
+    }
+}
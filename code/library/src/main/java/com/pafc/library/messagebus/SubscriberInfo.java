@@ -0,0 +1,72 @@
+package com.pafc.library.messagebus;
+
+/**
+ * the {@link MessageHandle} and {@link MessageAsyncHandle} methods of one subscriber class, as
+ * found at build time. the instances are created by the generated {@link ISubscriberIndex}
+ *
+ * @author idiot2ger
+ */
+public final class SubscriberInfo {
+
+    private final Class<?> mSubscriberClass;
+
+    private final MethodInfo[] mMethods;
+
+    public SubscriberInfo(Class<?> subscriberClass, MethodInfo[] methods) {
+        mSubscriberClass = subscriberClass;
+        mMethods = methods;
+    }
+
+    public Class<?> getSubscriberClass() {
+        return mSubscriberClass;
+    }
+
+    public MethodInfo[] getMethods() {
+        return mMethods;
+    }
+
+    /**
+     * one annotated method
+     */
+    public static final class MethodInfo {
+
+        final String methodName;
+        final int messageId;
+        final boolean isAsync;
+        final MessageAsyncHandle.SerialMode serialMode;
+        final Class<?> parameterCls;
+        final IMethodInvoker invoker;
+
+        /**
+         * @param methodName   the public method name
+         * @param messageId    the message id of the annotation
+         * @param isAsync      true if the method has {@link MessageAsyncHandle}
+         * @param parameterCls the parameter type, null if the method has no parameter
+         */
+        public MethodInfo(String methodName, int messageId, boolean isAsync, Class<?> parameterCls) {
+            this(methodName, messageId, isAsync, parameterCls, null);
+        }
+
+        /**
+         * @param invoker the generated invoker which calls the method directly, null to find the
+         *                method by reflection
+         */
+        public MethodInfo(String methodName, int messageId, boolean isAsync, Class<?> parameterCls,
+                          IMethodInvoker invoker) {
+            this(methodName, messageId, isAsync, MessageAsyncHandle.SerialMode.NONE, parameterCls, invoker);
+        }
+
+        /**
+         * @param serialMode the {@link MessageAsyncHandle#serial()} of the method
+         */
+        public MethodInfo(String methodName, int messageId, boolean isAsync, MessageAsyncHandle.SerialMode serialMode,
+                          Class<?> parameterCls, IMethodInvoker invoker) {
+            this.methodName = methodName;
+            this.messageId = messageId;
+            this.isAsync = isAsync;
+            this.serialMode = serialMode;
+            this.parameterCls = parameterCls;
+            this.invoker = invoker;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.pafc.library.util;
+
+
+import android.support.annotation.NonNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ * the thread safe {@link WeakIdentityMap}, striped
+ * 1. the keys are spread over stripes by the high bits of their identity hash, each stripe is a
+ *    {@link WeakIdentityMap} behind its own lock, the calls on keys of different stripes do not wait for each other
+ * 2. a stripe drains the collected keys of its own reference queue under its lock
+ * 3. size() adds the stripes one after the other, the iteration copies them one after the other, both are weakly
+ *    consistent
+ * </pre>
+ */
+public class ConcurrentWeakIdentityMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    private static final int DEFAULT_STRIPE_COUNT = 16;
+
+    private final WeakIdentityMap<K, V>[] mStripes;
+
+    private final int mStripeShift;
+
+    private Set<Entry<K, V>> mEntrySet;
+
+    public ConcurrentWeakIdentityMap() {
+        this(DEFAULT_STRIPE_COUNT);
+    }
+
+    /**
+     * @param stripeCount rounded up to a power of two, about the count of threads using the map at once
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public ConcurrentWeakIdentityMap(int stripeCount) {
+        final int count = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        mStripes = new WeakIdentityMap[count];
+        for (int i = 0; i < count; i++) {
+            mStripes[i] = new WeakIdentityMap<>();
+        }
+        mStripeShift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    private WeakIdentityMap<K, V> stripe(Object key) {
+        if (mStripes.length == 1) {
+            return mStripes[0];
+        }
+        // the high bits of a multiplicative hash, the low bits pick the bucket in the stripe
+        return mStripes[(System.identityHashCode(key) * 0x9e3779b9) >>> mStripeShift];
+    }
+
+    @Override
+    public V get(Object key) {
+        final WeakIdentityMap<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        final WeakIdentityMap<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.containsKey(key);
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        final WeakIdentityMap<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.put(key, value);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        final WeakIdentityMap<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            if (stripe.containsKey(key)) {
+                return stripe.get(key);
+            }
+            stripe.put(key, value);
+            return null;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        final WeakIdentityMap<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        final WeakIdentityMap<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            if (stripe.containsKey(key) && equal(stripe.get(key), value)) {
+                stripe.remove(key);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        final WeakIdentityMap<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            if (stripe.containsKey(key) && equal(stripe.get(key), oldValue)) {
+                stripe.put(key, newValue);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        final WeakIdentityMap<K, V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.containsKey(key) ? stripe.put(key, value) : null;
+        }
+    }
+
+    private static boolean equal(Object lhs, Object rhs) {
+        return lhs == null ? rhs == null : lhs.equals(rhs);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (WeakIdentityMap<K, V> stripe : mStripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (WeakIdentityMap<K, V> stripe : mStripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (mEntrySet == null) {
+            mEntrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public int size() {
+                    return ConcurrentWeakIdentityMap.this.size();
+                }
+
+                @NonNull
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    final List<Entry<K, V>> entries = new ArrayList<>();
+                    for (WeakIdentityMap<K, V> stripe : mStripes) {
+                        synchronized (stripe) {
+                            stripe.copyEntries(ConcurrentWeakIdentityMap.this, entries);
+                        }
+                    }
+                    return new WeakIdentityMap.SnapshotIterator<>(ConcurrentWeakIdentityMap.this, entries);
+                }
+            };
+        }
+        return mEntrySet;
+    }
+}
@@ -0,0 +1,245 @@
+package com.pafc.library.util;
+
+
+import android.support.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <pre>
+ * a thread safe weak list for the listener fan out, like a copy on write array list
+ * 1. an iteration runs over the immutable snapshot of its start, it never fails and skips the collected items,
+ *    a mutation does not wait for it
+ * 2. a mutation copies the snapshot and publishes the copy with a compare and set, lock free, it retries when
+ *    another mutation won, so it is for the registries read much more than changed
+ * 3. every copy leaves out the cleared slots, without a mutation the cleared slots are removed in a batch,
+ *    by the iteration that ends after finding a quarter of the slots cleared. there is no reference queue, its
+ *    poll takes a lock on android, the iterations count the cleared slots they skip instead
+ * 4. the items are compared with equals like {@link WeakReferenceList}, size() counts the slots of the snapshot
+ * 5. null is not allowed
+ * </pre>
+ */
+public class ConcurrentWeakReferenceList<T> extends AbstractCollection<T> {
+
+    private static final WeakReference<?>[] EMPTY = new WeakReference<?>[0];
+
+    private final AtomicReference<WeakReference<T>[]> mSnapshot =
+        new AtomicReference<>(ConcurrentWeakReferenceList.<T>empty());
+
+    @SuppressWarnings("unchecked")
+    private static <T> WeakReference<T>[] empty() {
+        return (WeakReference<T>[]) EMPTY;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T> WeakReference<T>[] newSnapshot(int length) {
+        return new WeakReference[length];
+    }
+
+    @Override
+    public boolean add(T object) {
+        if (object == null) {
+            throw new NullPointerException();
+        }
+        final WeakReference<T> reference = new WeakReference<>(object);
+        for (; ; ) {
+            final WeakReference<T>[] snapshot = mSnapshot.get();
+            if (publish(snapshot, copyLive(snapshot, null, reference))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return false if the item is already in the list
+     */
+    public boolean addIfAbsent(T object) {
+        if (object == null) {
+            throw new NullPointerException();
+        }
+        WeakReference<T> reference = null;
+        for (; ; ) {
+            final WeakReference<T>[] snapshot = mSnapshot.get();
+            if (indexOf(snapshot, object) >= 0) {
+                return false;
+            }
+            if (reference == null) {
+                reference = new WeakReference<>(object);
+            }
+            if (publish(snapshot, copyLive(snapshot, null, reference))) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        for (; ; ) {
+            final WeakReference<T>[] snapshot = mSnapshot.get();
+            final int index = indexOf(snapshot, object);
+            if (index < 0) {
+                return false;
+            }
+            if (publish(snapshot, copyLive(snapshot, snapshot[index], null))) {
+                return true;
+            }
+        }
+    }
+
+    private void removeReference(WeakReference<T> reference) {
+        for (; ; ) {
+            final WeakReference<T>[] snapshot = mSnapshot.get();
+            int index = 0;
+            while (index < snapshot.length && snapshot[index] != reference) {
+                index++;
+            }
+            if (index == snapshot.length || publish(snapshot, copyLive(snapshot, reference, null))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return indexOf(mSnapshot.get(), object) >= 0;
+    }
+
+    /**
+     * @return the slot count of the current snapshot, the cleared slots not removed yet included
+     */
+    @Override
+    public int size() {
+        return mSnapshot.get().length;
+    }
+
+    @Override
+    public void clear() {
+        mSnapshot.set(ConcurrentWeakReferenceList.<T>empty());
+    }
+
+    @NonNull
+    @Override
+    public Iterator<T> iterator() {
+        return new SnapshotIterator(mSnapshot.get());
+    }
+
+    private static <T> int indexOf(WeakReference<T>[] snapshot, Object object) {
+        if (object == null) {
+            return -1;
+        }
+        for (int i = 0; i < snapshot.length; i++) {
+            final T item = snapshot[i].get();
+            if (item != null && object.equals(item)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param removed a slot to leave out, or null
+     * @param added   a slot to append, or null
+     * @return a copy of the snapshot without the cleared slots
+     */
+    private WeakReference<T>[] copyLive(WeakReference<T>[] snapshot, WeakReference<T> removed, WeakReference<T> added) {
+        final int extra = added == null ? 0 : 1;
+        WeakReference<T>[] copy = newSnapshot(snapshot.length + extra);
+        int count = 0;
+        for (WeakReference<T> reference : snapshot) {
+            if (reference != removed && reference.get() != null) {
+                copy[count++] = reference;
+            }
+        }
+        if (added != null) {
+            copy[count++] = added;
+        }
+        if (count < copy.length) {
+            copy = count == 0 ? ConcurrentWeakReferenceList.<T>empty() : Arrays.copyOf(copy, count);
+        }
+        return copy;
+    }
+
+    private boolean publish(WeakReference<T>[] snapshot, WeakReference<T>[] copy) {
+        return mSnapshot.compareAndSet(snapshot, copy);
+    }
+
+    /**
+     * remove the cleared slots of the snapshot if it is still the current one, one try, a mutation that won
+     * copied the live slots anyway
+     */
+    private void compact(WeakReference<T>[] snapshot) {
+        if (mSnapshot.get() == snapshot) {
+            publish(snapshot, copyLive(snapshot, null, null));
+        }
+    }
+
+    private class SnapshotIterator implements Iterator<T> {
+
+        private final WeakReference<T>[] mReferences;
+
+        private int mIndex;
+
+        // the cleared slots skipped, the snapshot is compacted at the end when they are a quarter of it
+        private int mClearedCount;
+
+        // the live item found by hasNext, kept strongly until next returns it
+        private T mNext;
+        private WeakReference<T> mNextReference;
+
+        private WeakReference<T> mLastReference;
+
+        private SnapshotIterator(WeakReference<T>[] snapshot) {
+            mReferences = snapshot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (mNext == null && mIndex < mReferences.length) {
+                final WeakReference<T> reference = mReferences[mIndex++];
+                mNext = reference.get();
+                mNextReference = reference;
+                if (mNext == null) {
+                    mClearedCount++;
+                }
+            }
+            if (mNext != null) {
+                return true;
+            }
+            if (mClearedCount > 0 && mClearedCount >= mReferences.length >> 2) {
+                compact(mReferences);
+                // once per iteration
+                mClearedCount = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final T item = mNext;
+            mNext = null;
+            mLastReference = mNextReference;
+            mNextReference = null;
+            return item;
+        }
+
+        /**
+         * removes the slot of the last item from the list, the snapshot of this iteration does not change
+         */
+        @Override
+        public void remove() {
+            if (mLastReference == null) {
+                throw new IllegalStateException();
+            }
+            removeReference(mLastReference);
+            mLastReference = null;
+        }
+    }
+}
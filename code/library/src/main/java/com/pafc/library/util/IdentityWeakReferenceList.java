@@ -0,0 +1,306 @@
+package com.pafc.library.util;
+
+
+import android.support.annotation.NonNull;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <pre>
+ * a weak collection for the listener registries, the items are compared by identity and kept once
+ * 1. the iteration is in the order of insertion and skips the collected items
+ * 2. contains, add and remove are O(1), an identity hash index points from the item to its slot, nothing is
+ *    allocated for a lookup
+ * 3. a collected item is removed when the reference queue is drained, on the mutations, size and the iterations
+ * 4. a removed slot is left empty, the slots are compacted when the empty ones are half of them, adding during an
+ *    iteration may compact and fail the iteration, removing never does
+ * 5. not thread safe, null is not allowed
+ * </pre>
+ */
+public class IdentityWeakReferenceList<T> extends AbstractCollection<T> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private final ReferenceQueue<Object> mQueue = new ReferenceQueue<>();
+
+    // in the order of insertion, null for a removed slot
+    private Slot<T>[] mSlots;
+
+    // the used slots, the removed ones included
+    private int mSlotCount;
+
+    private int mSize;
+
+    // open addressing with linear probing, the slot position + 1, 0 for a free bucket, at most half full
+    private int[] mIndex;
+
+    private int mCompactionCount;
+
+    public IdentityWeakReferenceList() {
+        this(MIN_CAPACITY);
+    }
+
+    public IdentityWeakReferenceList(int capacity) {
+        capacity = Math.max(MIN_CAPACITY, capacity);
+        mSlots = newSlots(capacity);
+        mIndex = new int[Integer.highestOneBit(capacity - 1) << 2];
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T> Slot<T>[] newSlots(int capacity) {
+        return new Slot[capacity];
+    }
+
+    @Override
+    public boolean add(T object) {
+        if (object == null) {
+            throw new NullPointerException();
+        }
+        drainQueue();
+        if (find(object) >= 0) {
+            return false;
+        }
+        if (mSlotCount == mSlots.length) {
+            if (mSlotCount - mSize >= mSlotCount >> 1) {
+                compact();
+            } else {
+                mSlots = Arrays.copyOf(mSlots, mSlots.length * 2);
+            }
+        }
+        if ((mSize + 1) * 2 > mIndex.length) {
+            mIndex = new int[mIndex.length * 2];
+            rebuildIndex();
+        }
+        final Slot<T> slot = new Slot<>(object, mSlotCount, mQueue);
+        mSlots[mSlotCount] = slot;
+        insertIndex(slot.hash, mSlotCount);
+        mSlotCount++;
+        mSize++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object != null && find(object) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (object == null) {
+            return false;
+        }
+        drainQueue();
+        final int position = find(object);
+        if (position < 0) {
+            return false;
+        }
+        removeSlot(position);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        drainQueue();
+        return mSize;
+    }
+
+    @Override
+    public void clear() {
+        drainQueue();
+        Arrays.fill(mSlots, 0, mSlotCount, null);
+        Arrays.fill(mIndex, 0);
+        mSlotCount = 0;
+        mSize = 0;
+        mCompactionCount++;
+    }
+
+    @NonNull
+    @Override
+    public Iterator<T> iterator() {
+        drainQueue();
+        return new SlotIterator();
+    }
+
+    private static int bucket(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * @return the slot position of the item, -1 if not found
+     */
+    private int find(Object object) {
+        final int[] index = mIndex;
+        final int mask = index.length - 1;
+        int i = bucket(System.identityHashCode(object), mask);
+        for (; ; ) {
+            final int entry = index[i];
+            if (entry == 0) {
+                return -1;
+            }
+            if (mSlots[entry - 1].get() == object) {
+                return entry - 1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insertIndex(int hash, int position) {
+        final int mask = mIndex.length - 1;
+        int i = bucket(hash, mask);
+        while (mIndex[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        mIndex[i] = position + 1;
+    }
+
+    /**
+     * remove the entry and shift the next entries of the probe run back, so the index has no tombstones
+     */
+    private void deleteIndex(int hash, int position) {
+        final int mask = mIndex.length - 1;
+        int i = bucket(hash, mask);
+        while (mIndex[i] != position + 1) {
+            i = (i + 1) & mask;
+        }
+        int j = i;
+        for (; ; ) {
+            j = (j + 1) & mask;
+            final int entry = mIndex[j];
+            if (entry == 0) {
+                break;
+            }
+            final int home = bucket(mSlots[entry - 1].hash, mask);
+            // move the entry to the hole unless its home is cyclically in (i, j]
+            final boolean isHomeBetween = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+            if (!isHomeBetween) {
+                mIndex[i] = entry;
+                i = j;
+            }
+        }
+        mIndex[i] = 0;
+    }
+
+    private void rebuildIndex() {
+        Arrays.fill(mIndex, 0);
+        for (int i = 0; i < mSlotCount; i++) {
+            if (mSlots[i] != null) {
+                insertIndex(mSlots[i].hash, i);
+            }
+        }
+    }
+
+    private void removeSlot(int position) {
+        final Slot<T> slot = mSlots[position];
+        deleteIndex(slot.hash, position);
+        mSlots[position] = null;
+        mSize--;
+    }
+
+    private void compact() {
+        int liveCount = 0;
+        for (int i = 0; i < mSlotCount; i++) {
+            final Slot<T> slot = mSlots[i];
+            if (slot != null) {
+                slot.position = liveCount;
+                mSlots[liveCount++] = slot;
+            }
+        }
+        Arrays.fill(mSlots, liveCount, mSlotCount, null);
+        mSlotCount = liveCount;
+        mCompactionCount++;
+        rebuildIndex();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drainQueue() {
+        Slot<T> slot;
+        while ((slot = (Slot<T>) mQueue.poll()) != null) {
+            // a removed slot, or a slot of a list cleared since, is not in the slots any more
+            final int position = slot.position;
+            if (position < mSlotCount && mSlots[position] == slot) {
+                removeSlot(position);
+            }
+        }
+    }
+
+    private class SlotIterator implements Iterator<T> {
+
+        private final int mExpectedCompactionCount = mCompactionCount;
+
+        private int mPosition;
+
+        // the live item found by hasNext, kept strongly until next returns it
+        private T mNext;
+        private Slot<T> mNextSlot;
+
+        private Slot<T> mLastSlot;
+
+        @Override
+        public boolean hasNext() {
+            if (mNext != null) {
+                return true;
+            }
+            checkCompaction();
+            while (mPosition < mSlotCount) {
+                final Slot<T> slot = mSlots[mPosition++];
+                final T item = slot == null ? null : slot.get();
+                if (item != null) {
+                    mNext = item;
+                    mNextSlot = slot;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final T item = mNext;
+            mNext = null;
+            mLastSlot = mNextSlot;
+            mNextSlot = null;
+            return item;
+        }
+
+        @Override
+        public void remove() {
+            if (mLastSlot == null) {
+                throw new IllegalStateException();
+            }
+            checkCompaction();
+            final int position = mLastSlot.position;
+            if (position < mSlotCount && mSlots[position] == mLastSlot) {
+                removeSlot(position);
+            }
+            mLastSlot = null;
+        }
+
+        private void checkCompaction() {
+            if (mCompactionCount != mExpectedCompactionCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private static class Slot<T> extends WeakReference<T> {
+
+        final int hash;
+
+        int position;
+
+        Slot(T r, int position, ReferenceQueue<Object> queue) {
+            super(r, queue);
+            this.hash = System.identityHashCode(r);
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.pafc.library.util;
+
+
+import android.support.annotation.NonNull;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>
+ * a map holding its keys weakly and comparing them by identity, for the per object caches and registries
+ * 1. open addressing with linear probing in two arrays, a key reference and a value per bucket, at most half full,
+ *    a removal shifts the next entries of the probe run back, so there are no tombstones
+ * 2. the key references are registered with a reference queue, the queue is drained on every call and the entry
+ *    of a collected key is removed, like {@link java.util.WeakHashMap}
+ * 3. the values are held strongly, a value referring to its key keeps the entry forever
+ * 4. the iteration runs over a copy of the entries taken at its start, setValue and remove write through
+ * 5. not thread safe, see {@link ConcurrentWeakIdentityMap}, null keys are not allowed
+ * </pre>
+ */
+public class WeakIdentityMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final ReferenceQueue<Object> mQueue = new ReferenceQueue<>();
+
+    // null for a free bucket
+    private Key<K>[] mKeys;
+    private Object[] mValues;
+
+    // the used buckets, the collected keys not drained yet included
+    private int mSize;
+
+    private Set<Entry<K, V>> mEntrySet;
+
+    public WeakIdentityMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * @param expectedSize the entry count held without a resize
+     */
+    public WeakIdentityMap(int expectedSize) {
+        final int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize * 2 - 1)) << 1);
+        mKeys = newKeys(capacity);
+        mValues = new Object[capacity];
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <K> Key<K>[] newKeys(int capacity) {
+        return new Key[capacity];
+    }
+
+    static int bucket(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        drainQueue();
+        final int index = find(key);
+        return index < 0 ? null : (V) mValues[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        drainQueue();
+        return find(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        drainQueue();
+        final int index = find(key);
+        if (index >= 0) {
+            final V oldValue = (V) mValues[index];
+            mValues[index] = value;
+            return oldValue;
+        }
+        if ((mSize + 1) * 2 > mKeys.length) {
+            resize();
+        }
+        insert(new Key<>(key, mQueue), value);
+        mSize++;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        drainQueue();
+        final int index = find(key);
+        if (index < 0) {
+            return null;
+        }
+        final V oldValue = (V) mValues[index];
+        delete(index);
+        return oldValue;
+    }
+
+    /**
+     * @return the entry count, the collected keys drained before
+     */
+    @Override
+    public int size() {
+        drainQueue();
+        return mSize;
+    }
+
+    @Override
+    public void clear() {
+        drainQueue();
+        Arrays.fill(mKeys, null);
+        Arrays.fill(mValues, null);
+        mSize = 0;
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (mEntrySet == null) {
+            mEntrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public int size() {
+                    return WeakIdentityMap.this.size();
+                }
+
+                @NonNull
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    final List<Entry<K, V>> entries = new ArrayList<>(WeakIdentityMap.this.size());
+                    copyEntries(WeakIdentityMap.this, entries);
+                    return new SnapshotIterator<>(WeakIdentityMap.this, entries);
+                }
+            };
+        }
+        return mEntrySet;
+    }
+
+    /**
+     * add the live entries to the list, their setValue writes to the owner
+     */
+    @SuppressWarnings("unchecked")
+    void copyEntries(Map<K, V> owner, List<Entry<K, V>> entries) {
+        drainQueue();
+        for (int i = 0; i < mKeys.length; i++) {
+            final K key = mKeys[i] == null ? null : mKeys[i].get();
+            if (key != null) {
+                entries.add(new SnapshotEntry<>(owner, key, (V) mValues[i]));
+            }
+        }
+    }
+
+    /**
+     * @return the bucket of the key, -1 if not found
+     */
+    private int find(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        final Key<K>[] keys = mKeys;
+        final int mask = keys.length - 1;
+        int i = bucket(System.identityHashCode(key), mask);
+        for (; ; ) {
+            final Key<K> reference = keys[i];
+            if (reference == null) {
+                return -1;
+            }
+            if (reference.get() == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insert(Key<K> reference, Object value) {
+        final int mask = mKeys.length - 1;
+        int i = bucket(reference.hash, mask);
+        while (mKeys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        mKeys[i] = reference;
+        mValues[i] = value;
+    }
+
+    private void delete(int index) {
+        final Key<K>[] keys = mKeys;
+        final Object[] values = mValues;
+        final int mask = keys.length - 1;
+        int i = index;
+        int j = i;
+        for (; ; ) {
+            j = (j + 1) & mask;
+            final Key<K> reference = keys[j];
+            if (reference == null) {
+                break;
+            }
+            final int home = bucket(reference.hash, mask);
+            // move the entry to the hole unless its home is cyclically in (i, j]
+            final boolean isHomeBetween = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+            if (!isHomeBetween) {
+                keys[i] = reference;
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = null;
+        values[i] = null;
+        mSize--;
+    }
+
+    /**
+     * double the table, the collected keys are left out, their queued references are not found later
+     */
+    private void resize() {
+        final Key<K>[] oldKeys = mKeys;
+        final Object[] oldValues = mValues;
+        mKeys = newKeys(oldKeys.length * 2);
+        mValues = new Object[oldKeys.length * 2];
+        mSize = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null && oldKeys[i].get() != null) {
+                insert(oldKeys[i], oldValues[i]);
+                mSize++;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drainQueue() {
+        Key<K> reference;
+        while ((reference = (Key<K>) mQueue.poll()) != null) {
+            final int mask = mKeys.length - 1;
+            int i = bucket(reference.hash, mask);
+            for (; ; ) {
+                final Key<K> candidate = mKeys[i];
+                if (candidate == null) {
+                    break;
+                }
+                if (candidate == reference) {
+                    delete(i);
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+    }
+
+    private static final class Key<K> extends WeakReference<K> {
+
+        final int hash;
+
+        Key(K key, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = System.identityHashCode(key);
+        }
+    }
+
+    static final class SnapshotEntry<K, V> extends SimpleEntry<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<K, V> mOwner;
+
+        SnapshotEntry(Map<K, V> owner, K key, V value) {
+            super(key, value);
+            mOwner = owner;
+        }
+
+        @Override
+        public V setValue(V value) {
+            final V oldValue = super.setValue(value);
+            mOwner.put(getKey(), value);
+            return oldValue;
+        }
+    }
+
+    static final class SnapshotIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        private final Map<K, V> mOwner;
+
+        private final Iterator<Entry<K, V>> mIterator;
+
+        private Entry<K, V> mLast;
+
+        SnapshotIterator(Map<K, V> owner, List<Entry<K, V>> entries) {
+            mOwner = owner;
+            mIterator = entries.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mIterator.hasNext();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            mLast = mIterator.next();
+            return mLast;
+        }
+
+        @Override
+        public void remove() {
+            if (mLast == null) {
+                throw new IllegalStateException();
+            }
+            mOwner.remove(mLast.getKey());
+            mLast = null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.pafc.library.util;
+
+
+import android.support.annotation.NonNull;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * <pre>
+ * a set holding its items weakly and comparing them by identity, the keys of a {@link WeakIdentityMap}
+ * or of a {@link ConcurrentWeakIdentityMap}
+ * 1. the order of the iteration is not defined, see {@link IdentityWeakReferenceList} to keep the insertion order
+ * 2. null is not allowed
+ * </pre>
+ */
+public class WeakIdentitySet<E> extends AbstractSet<E> {
+
+    private final Map<E, Boolean> mMap;
+
+    private WeakIdentitySet(Map<E, Boolean> map) {
+        mMap = map;
+    }
+
+    public static <E> WeakIdentitySet<E> newWeakIdentitySet() {
+        return new WeakIdentitySet<>(new WeakIdentityMap<E, Boolean>());
+    }
+
+    /**
+     * @return a thread safe set
+     */
+    public static <E> WeakIdentitySet<E> newConcurrentWeakIdentitySet() {
+        return new WeakIdentitySet<>(new ConcurrentWeakIdentityMap<E, Boolean>());
+    }
+
+    @Override
+    public boolean add(E object) {
+        return mMap.put(object, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return mMap.containsKey(object);
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        return mMap.remove(object) != null;
+    }
+
+    @Override
+    public int size() {
+        return mMap.size();
+    }
+
+    @Override
+    public void clear() {
+        mMap.clear();
+    }
+
+    @NonNull
+    @Override
+    public Iterator<E> iterator() {
+        return mMap.keySet().iterator();
+    }
+}
@@ -3,20 +3,64 @@ package com.pafc.library.util;
 
 import android.support.annotation.NonNull;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
-
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * <pre>
+ * a list holding its items weakly
+ * 1. the slot of a collected item is cleared, the iterators skip the cleared slots, get(int) returns null for them
+ * 2. the slots are registered with a reference queue, the queue is drained on the mutations and the iterations,
+ *    once a quarter of the slots are cleared they are removed in one pass, amortized O(1) per cleared slot
+ * 3. only add(T), addAll(Collection), remove(Object), removeAll, retainAll, removeMatching, compact and clear remove
+ *    the cleared slots, the positional calls never move the slots, so an index stays valid between them
+ * 4. size() counts the slots, a cleared slot is counted until it is removed
+ * 5. the bulk calls, toArray, removeAll, retainAll, removeMatching and compact, are one pass over the slots,
+ *    removing from the array backend moves each kept slot once
+ * 6. subList is a view sharing the slots, it leaves the queue and the compaction to its list
+ * </pre>
+ */
 public class WeakReferenceList<T> implements List<T> {
 
+    /**
+     * the filter of {@link #removeMatching(Filter)}
+     */
+    public interface Filter<T> {
+        /**
+         * @return true to remove the item
+         */
+        boolean matches(T item);
+    }
+
     private List<WeakReferenceObject<T>> mWeakList;
 
+    private final ReferenceQueue<Object> mQueue;
+
+    // a subList, the queue belongs to the list
+    private final boolean isView;
+
+    // the slots cleared since the last compaction, may count slots removed before they were cleared
+    private int mClearedCount;
+
     private WeakReferenceList() {
+        mQueue = new ReferenceQueue<>();
+        isView = false;
+    }
 
+    private WeakReferenceList(List<WeakReferenceObject<T>> weakList, ReferenceQueue<Object> queue) {
+        mWeakList = weakList;
+        mQueue = queue;
+        isView = true;
     }
 
     public static <T> WeakReferenceList<T> newWeakReferenceArrayList() {
@@ -31,38 +75,117 @@ public class WeakReferenceList<T> implements List<T> {
         return list;
     }
 
+    private void drainQueue() {
+        if (isView) {
+            return;
+        }
+        while (mQueue.poll() != null) {
+            mClearedCount++;
+        }
+    }
+
+    /**
+     * drain the queue and remove the cleared slots once they are a quarter of the slots
+     */
+    private void purge() {
+        drainQueue();
+        if (!isView && mClearedCount > 0 && mClearedCount >= (mWeakList.size() >> 2)) {
+            compact();
+        }
+    }
+
+    /**
+     * remove the cleared slots now
+     */
+    public void compact() {
+        drainQueue();
+        sweep(null, false);
+    }
+
+    /**
+     * remove the items matched by the filter and the cleared slots, in one pass. not named removeIf, it would
+     * overload Collection#removeIf(Predicate) of java 8 and make the lambda calls ambiguous
+     *
+     * @return true if an item was matched
+     */
+    public boolean removeMatching(Filter<? super T> filter) {
+        drainQueue();
+        return sweep(filter, false);
+    }
+
+    /**
+     * @param filter the items to remove, or to keep if isRetained, null for the cleared slots only
+     * @return true if an item was removed by the filter
+     */
+    private boolean sweep(Filter<? super T> filter, boolean isRetained) {
+        if (!isView) {
+            mClearedCount = 0;
+        }
+        boolean isMatched = false;
+        if (mWeakList instanceof RandomAccess) {
+            final int size = mWeakList.size();
+            int keptCount = 0;
+            for (int i = 0; i < size; i++) {
+                final WeakReferenceObject<T> reference = mWeakList.get(i);
+                final T item = reference.get();
+                if (item == null) {
+                    continue;
+                }
+                if (filter != null && filter.matches(item) != isRetained) {
+                    isMatched = true;
+                    continue;
+                }
+                if (keptCount != i) {
+                    mWeakList.set(keptCount, reference);
+                }
+                keptCount++;
+            }
+            if (keptCount < size) {
+                mWeakList.subList(keptCount, size).clear();
+            }
+        } else {
+            final Iterator<WeakReferenceObject<T>> iterator = mWeakList.iterator();
+            while (iterator.hasNext()) {
+                final T item = iterator.next().get();
+                if (item == null) {
+                    iterator.remove();
+                } else if (filter != null && filter.matches(item) != isRetained) {
+                    iterator.remove();
+                    isMatched = true;
+                }
+            }
+        }
+        return isMatched;
+    }
+
     @Override
     public void add(int location, T object) {
-        mWeakList.add(location, new WeakReferenceObject<>(object));
+        drainQueue();
+        mWeakList.add(location, new WeakReferenceObject<>(object, mQueue));
     }
 
     @Override
     public boolean add(T object) {
-        return mWeakList.add(new WeakReferenceObject<>(object));
+        purge();
+        return mWeakList.add(new WeakReferenceObject<>(object, mQueue));
     }
 
     @Override
     public boolean addAll(int location, Collection<? extends T> collection) {
+        drainQueue();
         return mWeakList.addAll(location, createWeakConnection(collection));
     }
 
     @Override
     public boolean addAll(Collection<? extends T> collection) {
+        purge();
         return mWeakList.addAll(createWeakConnection(collection));
     }
 
     private Collection<WeakReferenceObject<T>> createWeakConnection(Collection<? extends T> collection) {
         final Collection<WeakReferenceObject<T>> weakCollection = new ArrayList<>(collection.size());
         for (T item : collection) {
-            weakCollection.add(new WeakReferenceObject<>(item));
-        }
-        return weakCollection;
-    }
-
-    private Collection<WeakReferenceObject<?>> createWeakConnectionWithoutType(Collection<?> collection) {
-        final Collection<WeakReferenceObject<?>> weakCollection = new ArrayList<>(collection.size());
-        for (Object item : collection) {
-            weakCollection.add(new WeakReferenceObject<>(item));
+            weakCollection.add(new WeakReferenceObject<>(item, mQueue));
         }
         return weakCollection;
     }
@@ -70,16 +193,23 @@ public class WeakReferenceList<T> implements List<T> {
     @Override
     public void clear() {
         mWeakList.clear();
+        drainQueue();
+        mClearedCount = 0;
     }
 
     @Override
     public boolean contains(Object object) {
-        return mWeakList.contains(new WeakReferenceObject<>(object));
+        return indexOf(object) >= 0;
     }
 
     @Override
     public boolean containsAll(Collection<?> collection) {
-        return mWeakList.containsAll(createWeakConnectionWithoutType(collection));
+        for (Object item : collection) {
+            if (indexOf(item) < 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -87,9 +217,33 @@ public class WeakReferenceList<T> implements List<T> {
         return mWeakList.get(location).get();
     }
 
+    /**
+     * compares the referents with equals, null and the cleared slots never match
+     */
     @Override
     public int indexOf(Object object) {
-        return mWeakList.indexOf(new WeakReferenceObject<>(object));
+        if (object == null) {
+            return -1;
+        }
+        if (mWeakList instanceof RandomAccess) {
+            final int size = mWeakList.size();
+            for (int i = 0; i < size; i++) {
+                final T item = mWeakList.get(i).get();
+                if (item != null && object.equals(item)) {
+                    return i;
+                }
+            }
+        } else {
+            int index = 0;
+            for (WeakReferenceObject<T> reference : mWeakList) {
+                final T item = reference.get();
+                if (item != null && object.equals(item)) {
+                    return index;
+                }
+                index++;
+            }
+        }
+        return -1;
     }
 
     @Override
@@ -100,50 +254,96 @@ public class WeakReferenceList<T> implements List<T> {
     @NonNull
     @Override
     public Iterator<T> iterator() {
-        return new WeakIterator(mWeakList);
+        drainQueue();
+        return new WeakListIterator(mWeakList.listIterator());
     }
 
+    /**
+     * compares the referents with equals, null and the cleared slots never match
+     */
     @Override
     public int lastIndexOf(Object object) {
-        return mWeakList.lastIndexOf(new WeakReferenceObject<>(object));
+        if (object == null) {
+            return -1;
+        }
+        final ListIterator<WeakReferenceObject<T>> iterator = mWeakList.listIterator(mWeakList.size());
+        while (iterator.hasPrevious()) {
+            final T item = iterator.previous().get();
+            if (item != null && object.equals(item)) {
+                return iterator.nextIndex();
+            }
+        }
+        return -1;
     }
 
     @NonNull
     @Override
     public ListIterator<T> listIterator() {
-        return new WeakListIterator(mWeakList);
+        drainQueue();
+        return new WeakListIterator(mWeakList.listIterator());
     }
 
     @NonNull
     @Override
     public ListIterator<T> listIterator(int location) {
-        return new WeakListIterator(mWeakList, location);
+        drainQueue();
+        return new WeakListIterator(mWeakList.listIterator(location));
     }
 
     @Override
     public T remove(int location) {
+        drainQueue();
         WeakReferenceObject<T> wo = mWeakList.remove(location);
         return wo == null ? null : wo.get();
     }
 
     @Override
     public boolean remove(Object object) {
-        return mWeakList.remove(new WeakReferenceObject<>(object));
+        purge();
+        if (object == null) {
+            return false;
+        }
+        final Iterator<WeakReferenceObject<T>> iterator = mWeakList.iterator();
+        while (iterator.hasNext()) {
+            final T item = iterator.next().get();
+            if (item != null && object.equals(item)) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public boolean removeAll(Collection<?> collection) {
-        return mWeakList.removeAll(createWeakConnectionWithoutType(collection));
+        drainQueue();
+        return sweep(new ContainedFilter<T>(collection), false);
     }
 
     @Override
     public boolean retainAll(Collection<?> collection) {
-        return mWeakList.retainAll(createWeakConnectionWithoutType(collection));
+        drainQueue();
+        return sweep(new ContainedFilter<T>(collection), true);
+    }
+
+    private static class ContainedFilter<T> implements Filter<T> {
+
+        private final Collection<?> mCollection;
+
+        private ContainedFilter(Collection<?> collection) {
+            mCollection = collection;
+        }
+
+        @Override
+        public boolean matches(T item) {
+            return mCollection.contains(item);
+        }
     }
 
     @Override
     public T set(int location, T object) {
-        WeakReferenceObject<T> preItem = mWeakList.set(location, new WeakReferenceObject<>(object));
+        drainQueue();
+        WeakReferenceObject<T> preItem = mWeakList.set(location, new WeakReferenceObject<>(object, mQueue));
         return preItem == null ? null : preItem.get();
     }
 
@@ -155,122 +355,217 @@ public class WeakReferenceList<T> implements List<T> {
     @NonNull
     @Override
     public List<T> subList(int start, int end) {
-        return null;
+        return new WeakReferenceList<>(mWeakList.subList(start, end), mQueue);
     }
 
+    /**
+     * @return the live items, in one pass into an array of the slot count, trimmed if slots were cleared
+     */
     @NonNull
     @Override
     public Object[] toArray() {
-        return new Object[0];
+        final Object[] array = new Object[mWeakList.size()];
+        final int count = copyLive(array);
+        return count == array.length ? array : Arrays.copyOf(array, count);
     }
 
+    /**
+     * @return the live items, in the given array if it has room for all slots, followed by a null if it is longer
+     */
     @NonNull
     @Override
+    @SuppressWarnings("unchecked")
     public <T1> T1[] toArray(T1[] array) {
-        return null;
+        final int slotCount = mWeakList.size();
+        T1[] result = array.length >= slotCount ? array
+            : (T1[]) Array.newInstance(array.getClass().getComponentType(), slotCount);
+        final int count = copyLive(result);
+        if (result != array && count < result.length) {
+            result = Arrays.copyOf(result, count);
+        } else if (count < result.length) {
+            result[count] = null;
+        }
+        return result;
     }
 
-
-    private class WeakIterator implements Iterator<T> {
-
-        private Iterator<WeakReferenceObject<T>> mDataIterator;
+    private int copyLive(Object[] array) {
+        int count = 0;
+        for (WeakReferenceObject<T> reference : mWeakList) {
+            final T item = reference.get();
+            if (item != null) {
+                array[count++] = item;
+            }
+        }
+        return count;
+    }
 
 
-        private WeakIterator(List<WeakReferenceObject<T>> list) {
-            mDataIterator = list.iterator();
-        }
+    /**
+     * <pre>
+     * skips the cleared slots in both directions
+     * 1. hasNext and hasPrevious look ahead for a live item and keep it strongly, so it can not be cleared before
+     *    next or previous returns it
+     * 2. the cursor of the slots runs ahead of the cursor of this iterator by the skipped slots, remove, set and add
+     *    move it back first
+     * 3. nextIndex and previousIndex are the indexes of the slots
+     * </pre>
+     */
+    private class WeakListIterator implements ListIterator<T> {
 
-        @Override
-        public boolean hasNext() {
-            return mDataIterator.hasNext();
-        }
+        private static final int LAST_NONE = 0;
+        private static final int LAST_NEXT = 1;
+        private static final int LAST_PREVIOUS = 2;
 
-        @Override
-        public T next() {
-            return mDataIterator.next().get();
-        }
+        private final ListIterator<WeakReferenceObject<T>> mDataIterator;
 
-        @Override
-        public void remove() {
-            mDataIterator.remove();
-        }
-    }
+        // the slot cursor minus the cursor of this iterator
+        private int mOffset;
 
-    private class WeakListIterator implements ListIterator<T> {
+        // the live item found by a look ahead, in the direction of isAheadForward
+        private T mAhead;
+        private boolean isAheadForward;
 
-        private ListIterator<WeakReferenceObject<T>> mDataIterator;
+        private int mLast = LAST_NONE;
 
-        private WeakListIterator(List<WeakReferenceObject<T>> list) {
-            mDataIterator = list.listIterator();
+        private WeakListIterator(ListIterator<WeakReferenceObject<T>> dataIterator) {
+            mDataIterator = dataIterator;
         }
 
-        private WeakListIterator(List<WeakReferenceObject<T>> list, int location) {
-            mDataIterator = list.listIterator(location);
+        private void moveBack() {
+            while (mOffset > 0) {
+                mDataIterator.previous();
+                mOffset--;
+            }
+            while (mOffset < 0) {
+                mDataIterator.next();
+                mOffset++;
+            }
+            mAhead = null;
         }
 
         @Override
-        public void add(T object) {
-            mDataIterator.add(new WeakReferenceObject<>(object));
+        public boolean hasNext() {
+            if (mAhead != null) {
+                if (isAheadForward) {
+                    return true;
+                }
+                moveBack();
+            }
+            while (mDataIterator.hasNext()) {
+                final T item = mDataIterator.next().get();
+                mOffset++;
+                if (item != null) {
+                    mAhead = item;
+                    isAheadForward = true;
+                    return true;
+                }
+            }
+            return false;
         }
 
         @Override
-        public boolean hasNext() {
-            return mDataIterator.hasNext();
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final T item = mAhead;
+            mAhead = null;
+            mOffset = 0;
+            mLast = LAST_NEXT;
+            return item;
         }
 
         @Override
         public boolean hasPrevious() {
-            return mDataIterator.hasPrevious();
+            if (mAhead != null) {
+                if (!isAheadForward) {
+                    return true;
+                }
+                moveBack();
+            }
+            while (mDataIterator.hasPrevious()) {
+                final T item = mDataIterator.previous().get();
+                mOffset--;
+                if (item != null) {
+                    mAhead = item;
+                    isAheadForward = false;
+                    return true;
+                }
+            }
+            return false;
         }
 
         @Override
-        public T next() {
-            return mDataIterator.next().get();
+        public T previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            final T item = mAhead;
+            mAhead = null;
+            mOffset = 0;
+            mLast = LAST_PREVIOUS;
+            return item;
         }
 
         @Override
         public int nextIndex() {
-            return mDataIterator.nextIndex();
+            return mDataIterator.nextIndex() - mOffset;
         }
 
         @Override
-        public T previous() {
-            return mDataIterator.previous().get();
+        public int previousIndex() {
+            return nextIndex() - 1;
         }
 
         @Override
-        public int previousIndex() {
-            return mDataIterator.previousIndex();
+        public void add(T object) {
+            moveBack();
+            mDataIterator.add(new WeakReferenceObject<>(object, mQueue));
+            mLast = LAST_NONE;
         }
 
         @Override
         public void remove() {
+            checkLast();
+            moveBack();
+            if (mLast == LAST_NEXT) {
+                mDataIterator.previous();
+            } else {
+                mDataIterator.next();
+            }
             mDataIterator.remove();
+            mLast = LAST_NONE;
         }
 
         @Override
         public void set(T object) {
-            mDataIterator.set(new WeakReferenceObject<>(object));
+            checkLast();
+            moveBack();
+            if (mLast == LAST_NEXT) {
+                mDataIterator.previous();
+                mDataIterator.set(new WeakReferenceObject<>(object, mQueue));
+                mDataIterator.next();
+            } else {
+                mDataIterator.next();
+                mDataIterator.set(new WeakReferenceObject<>(object, mQueue));
+                mDataIterator.previous();
+            }
+        }
+
+        private void checkLast() {
+            if (mLast == LAST_NONE) {
+                throw new IllegalStateException();
+            }
         }
     }
 
+    /**
+     * a slot, the lookups compare the referents, so it keeps the identity equals of the reference
+     */
     private class WeakReferenceObject<T> extends WeakReference<T> {
 
-        public WeakReferenceObject(T r) {
-            super(r);
-        }
-
-        //override the method
-        @Override
-        public boolean equals(Object o) {
-            if (o instanceof WeakReferenceObject) {
-                final T obj1 = get();
-                final Object obj2 = ((WeakReferenceObject) o).get();
-                if (obj1 != null && obj2 != null) {
-                    return obj1.equals(obj2);
-                }
-            }
-            return false;
+        public WeakReferenceObject(T r, ReferenceQueue<Object> queue) {
+            super(r, queue);
         }
     }
 
@@ -0,0 +1,223 @@
+package com.pafc.logdecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * <pre>
+ * command line tool turning the log segments pulled from a device back into text
+ * java -jar log-decoder.jar [--level D] [--tag TAG]... [--from TIME] [--to TIME] FILE_OR_DIR...
+ * 1. the text and the binary segments are read, compressed (.plog.gz) or not, and the exports of the handlers,
+ *    a directory means all the .plog and .plog.gz files in it
+ * 2. the lines of all files are merged in time order and printed like the device console
+ * 3. --level is the minimum level (V, D, I, W, E, A or the number), --tag can be repeated,
+ *    --from and --to are "yyyy-MM-dd HH:mm:ss" or ms since the epoch, both inclusive
+ * </pre>
+ */
+public final class LogDecoder {
+
+    private static final String SEGMENT_SUFFIX = ".plog";
+
+    private static final String ARCHIVE_SUFFIX = ".plog.gz";
+
+    private static final String LEVEL_CHARS = "??VDIWEA";
+
+    private int mMinimumLevel;
+    private final Set<String> mTags = new HashSet<>();
+    private long mFrom = Long.MIN_VALUE;
+    private long mTo = Long.MAX_VALUE;
+    private final List<File> mFiles = new ArrayList<>();
+
+    private LogDecoder() {
+    }
+
+    public static void main(String[] args) {
+        final LogDecoder decoder = new LogDecoder();
+        try {
+            decoder.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: log-decoder [--level D] [--tag TAG]... [--from TIME] [--to TIME] FILE_OR_DIR...");
+            System.exit(2);
+        }
+        if (!decoder.decode(System.out)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * decode like {@link #main(String[])}, to out
+     *
+     * @return false if a file could not be read
+     * @throws IllegalArgumentException if the arguments are wrong
+     */
+    static boolean decode(String[] args, PrintStream out) {
+        final LogDecoder decoder = new LogDecoder();
+        decoder.parseArguments(args);
+        return decoder.decode(out);
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.startsWith("--")) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException(arg + " needs a value");
+                }
+                final String value = args[++i];
+                if ("--level".equals(arg)) {
+                    mMinimumLevel = parseLevel(value);
+                } else if ("--tag".equals(arg)) {
+                    mTags.add(value);
+                } else if ("--from".equals(arg)) {
+                    mFrom = parseTime(value);
+                } else if ("--to".equals(arg)) {
+                    mTo = parseTime(value);
+                } else {
+                    throw new IllegalArgumentException("unknown option " + arg);
+                }
+            } else {
+                addFile(new File(arg));
+            }
+        }
+        if (mFiles.isEmpty()) {
+            throw new IllegalArgumentException("no log segment given");
+        }
+    }
+
+    private void addFile(File file) {
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children, new Comparator<File>() {
+                    @Override
+                    public int compare(File lhs, File rhs) {
+                        return compareSegmentNames(lhs.getName(), rhs.getName());
+                    }
+                });
+                for (File child : children) {
+                    if (child.isFile() && (child.getName().endsWith(SEGMENT_SUFFIX) || child.getName().endsWith(ARCHIVE_SUFFIX))) {
+                        mFiles.add(child);
+                    }
+                }
+            }
+        } else {
+            mFiles.add(file);
+        }
+    }
+
+    /**
+     * @return false if a file could not be read, the other files are printed anyway
+     */
+    private boolean decode(PrintStream out) {
+        boolean isComplete = true;
+        final List<SegmentDecoder.LogLine> lines = new ArrayList<>();
+        for (File file : mFiles) {
+            try {
+                for (SegmentDecoder.LogLine line : SegmentDecoder.decode(file)) {
+                    if (accept(line)) {
+                        lines.add(line);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("can not decode " + file + ": " + e);
+                isComplete = false;
+            }
+        }
+        // stable, the lines of one ms keep the file order
+        Collections.sort(lines, new Comparator<SegmentDecoder.LogLine>() {
+            @Override
+            public int compare(SegmentDecoder.LogLine lhs, SegmentDecoder.LogLine rhs) {
+                return lhs.time < rhs.time ? -1 : (lhs.time == rhs.time ? 0 : 1);
+            }
+        });
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        final StringBuilder builder = new StringBuilder();
+        for (SegmentDecoder.LogLine line : lines) {
+            builder.setLength(0);
+            builder.append(dateFormat.format(new Date(line.time))).append(' ').append(line.levelChar()).append('/')
+                .append(line.tag).append(": ").append(line.message);
+            out.println(builder);
+        }
+        out.flush();
+        return isComplete;
+    }
+
+    /**
+     * prefix_index.plog and prefix_index.plog.gz by prefix, then by index, so the lines of one ms in the
+     * segment 9 come before the ones in the segment 10
+     */
+    private static int compareSegmentNames(String lhs, String rhs) {
+        final int lhsSeparator = lhs.lastIndexOf('_');
+        final int rhsSeparator = rhs.lastIndexOf('_');
+        final int lhsIndex = segmentIndex(lhs, lhsSeparator);
+        final int rhsIndex = segmentIndex(rhs, rhsSeparator);
+        if (lhsIndex < 0 || rhsIndex < 0) {
+            return lhs.compareTo(rhs);
+        }
+        final int prefixOrder = lhs.substring(0, lhsSeparator).compareTo(rhs.substring(0, rhsSeparator));
+        if (prefixOrder != 0) {
+            return prefixOrder;
+        }
+        return lhsIndex < rhsIndex ? -1 : (lhsIndex == rhsIndex ? lhs.compareTo(rhs) : 1);
+    }
+
+    /**
+     * @return the index of a segment name, -1 if it has none
+     */
+    private static int segmentIndex(String name, int separator) {
+        final int end = name.endsWith(ARCHIVE_SUFFIX) ? name.length() - ARCHIVE_SUFFIX.length()
+            : (name.endsWith(SEGMENT_SUFFIX) ? name.length() - SEGMENT_SUFFIX.length() : -1);
+        if (separator < 0 || end <= separator + 1) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(separator + 1, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean accept(SegmentDecoder.LogLine line) {
+        return line.level >= mMinimumLevel && line.time >= mFrom && line.time <= mTo
+            && (mTags.isEmpty() || mTags.contains(line.tag));
+    }
+
+    private static int parseLevel(String value) {
+        if (value.length() == 1) {
+            final int level = LEVEL_CHARS.lastIndexOf(Character.toUpperCase(value.charAt(0)));
+            if (level >= 2) {
+                return level;
+            }
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("unknown level " + value);
+        }
+    }
+
+    private static long parseTime(String value) {
+        try {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).parse(value).getTime();
+        } catch (ParseException e) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException ignored) {
+                throw new IllegalArgumentException("unknown time " + value);
+            }
+        }
+    }
+}
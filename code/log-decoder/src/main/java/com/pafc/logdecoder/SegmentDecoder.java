@@ -0,0 +1,294 @@
+package com.pafc.logdecoder;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <pre>
+ * reads the segments of FileLogHandler (text) or BinaryLogHandler (binary) into {@link LogLine}s
+ * the layout must stay the same as MappedSegmentFile and BinaryLogHandler of the library
+ * </pre>
+ */
+final class SegmentDecoder {
+
+    static final int MAGIC = 0x504c4f47;
+    static final short FORMAT_TEXT = 0;
+    static final short FORMAT_BINARY = 1;
+
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_FORMAT = 6;
+    static final int OFFSET_WRITE = 8;
+    static final int OFFSET_CREATED = 12;
+    static final int HEADER_SIZE = 24;
+
+    static final byte RECORD_TAG = 1;
+    static final byte RECORD_FORMAT = 2;
+    static final byte RECORD_LINE = 3;
+    static final byte RECORD_EVENT = 4;
+
+    static final byte ARG_NULL = 0;
+    static final byte ARG_INT = 1;
+    static final byte ARG_LONG = 2;
+    static final byte ARG_FLOAT = 3;
+    static final byte ARG_DOUBLE = 4;
+    static final byte ARG_FALSE = 5;
+    static final byte ARG_TRUE = 6;
+    static final byte ARG_CHAR = 7;
+    static final byte ARG_STRING = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String LEVEL_CHARS = "??VDIWEA";
+
+    static final class LogLine {
+        long time;
+        int level;
+        String tag;
+        String message;
+
+        char levelChar() {
+            return level >= 0 && level < LEVEL_CHARS.length() ? LEVEL_CHARS.charAt(level) : '?';
+        }
+    }
+
+    private SegmentDecoder() {
+    }
+
+    /**
+     * a .plog segment, or a gzip of segments without their unused tails, a .plog.gz archive or an export
+     */
+    static List<LogLine> decode(File file) throws IOException {
+        final byte[] bytes = readFully(file);
+        final List<LogLine> lines = new ArrayList<>();
+        int start = 0;
+        while (start + HEADER_SIZE <= bytes.length) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, start, bytes.length - start);
+            if (buffer.getInt(start + OFFSET_MAGIC) != MAGIC) {
+                if (start == 0) {
+                    throw new IOException(file + " is not a log segment");
+                }
+                // the unused tail of a .plog segment
+                break;
+            }
+            final int writeOffset = buffer.getInt(start + OFFSET_WRITE);
+            if (writeOffset < HEADER_SIZE || start + writeOffset > bytes.length) {
+                throw new IOException(file + " has a broken header at " + start);
+            }
+            final long createdTime = buffer.getLong(start + OFFSET_CREATED);
+            final short format = buffer.getShort(start + OFFSET_FORMAT);
+            buffer.position(start + HEADER_SIZE);
+            buffer.limit(start + writeOffset);
+            if (format == FORMAT_TEXT) {
+                lines.addAll(decodeText(buffer, createdTime));
+            } else if (format == FORMAT_BINARY) {
+                lines.addAll(decodeBinary(buffer, createdTime));
+            } else {
+                throw new IOException(file + " has the unknown format " + format + " at " + start);
+            }
+            start += writeOffset;
+        }
+        return lines;
+    }
+
+    /**
+     * "MM-dd HH:mm:ss.SSS L/tag: message" lines, a line without that start (a stack trace) belongs to the line before
+     */
+    private static List<LogLine> decodeText(ByteBuffer buffer, long createdTime) {
+        final String text = new String(buffer.array(), buffer.position(), buffer.remaining(), UTF_8);
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(createdTime);
+        final int createdYear = calendar.get(Calendar.YEAR);
+        final int createdMonth = calendar.get(Calendar.MONTH);
+
+        final List<LogLine> lines = new ArrayList<>();
+        LogLine last = null;
+        for (String row : text.split("\n")) {
+            final int tagEnd = row.indexOf(": ", 21);
+            if (row.length() >= 21 && row.charAt(2) == '-' && row.charAt(14) == '.' && row.charAt(20) == '/' && tagEnd > 0) {
+                try {
+                    final int month = Integer.parseInt(row.substring(0, 2)) - 1;
+                    calendar.clear();
+                    calendar.set(month < createdMonth ? createdYear + 1 : createdYear, month,
+                        Integer.parseInt(row.substring(3, 5)), Integer.parseInt(row.substring(6, 8)),
+                        Integer.parseInt(row.substring(9, 11)), Integer.parseInt(row.substring(12, 14)));
+                    final LogLine line = new LogLine();
+                    line.time = calendar.getTimeInMillis() + Integer.parseInt(row.substring(15, 18));
+                    line.level = Math.max(0, LEVEL_CHARS.lastIndexOf(row.charAt(19)));
+                    line.tag = row.substring(21, tagEnd);
+                    line.message = row.substring(tagEnd + 2);
+                    lines.add(line);
+                    last = line;
+                    continue;
+                } catch (NumberFormatException ignored) {
+                    // a continuation line that looks like a line start
+                }
+            }
+            if (last != null) {
+                last.message = last.message + "\n" + row;
+            }
+        }
+        return lines;
+    }
+
+    private static List<LogLine> decodeBinary(ByteBuffer buffer, long createdTime) throws IOException {
+        final Map<Integer, String> tags = new HashMap<>();
+        final Map<Integer, String> formats = new HashMap<>();
+        final List<LogLine> lines = new ArrayList<>();
+        long time = createdTime;
+        while (buffer.hasRemaining()) {
+            final byte type = buffer.get();
+            if (type == RECORD_TAG) {
+                tags.put(readVarint(buffer), readString(buffer));
+            } else if (type == RECORD_FORMAT) {
+                formats.put(readVarint(buffer), readString(buffer));
+            } else if (type == RECORD_LINE) {
+                time += readZigZag(buffer);
+                final LogLine line = new LogLine();
+                line.time = time;
+                line.level = buffer.get();
+                line.tag = tags.get(readVarint(buffer));
+                final int formatId = readVarint(buffer);
+                if (formatId == 0) {
+                    line.message = readString(buffer);
+                } else {
+                    final Object[] arguments = new Object[readVarint(buffer)];
+                    for (int i = 0; i < arguments.length; i++) {
+                        arguments[i] = readArgument(buffer);
+                    }
+                    line.message = format(formats.get(formatId), arguments);
+                }
+                if (buffer.get() != 0) {
+                    line.message = line.message + "\n" + readString(buffer);
+                }
+                lines.add(line);
+            } else if (type == RECORD_EVENT) {
+                time += readZigZag(buffer);
+                final LogLine line = new LogLine();
+                line.time = time;
+                line.level = buffer.get();
+                line.tag = tags.get(readVarint(buffer));
+                final Object message = readArgument(buffer);
+                final StringBuilder builder = new StringBuilder();
+                if (message != null) {
+                    builder.append(message).append(' ');
+                }
+                final int fieldCount = readVarint(buffer);
+                for (int i = 0; i < fieldCount; i++) {
+                    if (i > 0) {
+                        builder.append(' ');
+                    }
+                    builder.append(formats.get(readVarint(buffer))).append('=').append(readArgument(buffer));
+                }
+                line.message = builder.toString();
+                lines.add(line);
+            } else {
+                throw new IOException("unknown record type " + type + " at " + (buffer.position() - 1));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * like String.format on the device, a fmt that does not fit the arguments is printed with them
+     */
+    private static String format(String fmt, Object[] arguments) {
+        if (fmt == null) {
+            return Arrays.toString(arguments);
+        }
+        try {
+            return String.format(fmt, arguments);
+        } catch (IllegalFormatException e) {
+            return fmt + " " + Arrays.toString(arguments);
+        }
+    }
+
+    private static Object readArgument(ByteBuffer buffer) throws IOException {
+        final byte type = buffer.get();
+        switch (type) {
+            case ARG_NULL:
+                return null;
+            case ARG_INT:
+                return (int) readZigZag(buffer);
+            case ARG_LONG:
+                return readZigZag(buffer);
+            case ARG_FLOAT:
+                return buffer.getFloat();
+            case ARG_DOUBLE:
+                return buffer.getDouble();
+            case ARG_FALSE:
+                return Boolean.FALSE;
+            case ARG_TRUE:
+                return Boolean.TRUE;
+            case ARG_CHAR:
+                return (char) readVarint(buffer);
+            case ARG_STRING:
+                return readString(buffer);
+            default:
+                throw new IOException("unknown argument type " + type + " at " + (buffer.position() - 1));
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = readVarint(buffer);
+        final String value = new String(buffer.array(), buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        return (int) readUnsigned(buffer);
+    }
+
+    private static long readZigZag(ByteBuffer buffer) {
+        final long zigZag = readUnsigned(buffer);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+    private static long readUnsigned(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+        try {
+            inputStream.mark(2);
+            final boolean isGzip = inputStream.read() == 0x1f && inputStream.read() == 0x8b;
+            inputStream.reset();
+            if (isGzip) {
+                // reads all the members
+                inputStream = new GZIPInputStream(inputStream);
+            }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) file.length());
+            final byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.pafc.logdecoder;
+
+import com.pafc.library.log.BinaryLogHandler;
+import com.pafc.library.log.PLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ * the lines written by BinaryLogHandler and read back by the decoder
+ * 1. the plain, xF and event lines, with the --tag and --level filters
+ * 2. the rotated segments, compressed or not, and the export, in order
+ * 3. a line longer than a whole segment is cut, the next lines are kept
+ * </pre>
+ */
+public class BinaryLogRoundTripTest {
+
+    private static final int SMALL_SEGMENT_SIZE = 256;
+
+    private static final int ROTATION_LINES = 200;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+
+    private BinaryLogHandler mHandler;
+
+    private PLog.Config mConfig;
+
+    @Before
+    public void setUp() throws IOException {
+        PLog.setConsoleLogVisible(false);
+        mDirectory = mFolder.newFolder("logs");
+    }
+
+    @After
+    public void tearDown() {
+        if (mConfig != null) {
+            PLog.removeLogConfig(mConfig);
+        }
+        if (mHandler != null) {
+            mHandler.close();
+        }
+        PLog.setConsoleLogVisible(true);
+    }
+
+    @Test
+    public void linesAndFilters() throws Exception {
+        addHandler(new BinaryLogHandler(mDirectory, 4096, 10));
+        PLog.iF("Net", "sync %s finished, %d items in %d ms", "feed", 12, 340L);
+        PLog.dF("Player", "frame %.1f fps, %b, %c", 59.5f, true, 'x');
+        PLog.w("Net", "timeout");
+        PLog.event(PLog.LEVEL_INFO, "Net").message("request").put("status", 200).put("cached", false).log();
+        PLog.e("Player", "decode failed", new IOException("eof"));
+        mHandler.close();
+
+        final List<String> lines = decode(mDirectory.getPath());
+        assertEquals("I/Net: sync feed finished, 12 items in 340 ms", lines.get(0));
+        assertEquals("D/Player: frame 59.5 fps, true, x", lines.get(1));
+        assertEquals("W/Net: timeout", lines.get(2));
+        assertEquals("I/Net: request status=200 cached=false", lines.get(3));
+        assertEquals("E/Player: decode failed", lines.get(4));
+        assertEquals("java.io.IOException: eof", lines.get(5));
+
+        assertEquals(Arrays.asList("I/Net: sync feed finished, 12 items in 340 ms", "W/Net: timeout",
+            "I/Net: request status=200 cached=false"), decode("--tag", "Net", mDirectory.getPath()));
+        assertEquals("W/Net: timeout", decode("--level", "W", mDirectory.getPath()).get(0));
+        assertEquals("E/Player: decode failed", decode("--level", "W", mDirectory.getPath()).get(1));
+        assertEquals(Arrays.asList("E/Player: decode failed", "java.io.IOException: eof"),
+            decode("--level", "E", "--tag", "Player", mDirectory.getPath()).subList(0, 2));
+    }
+
+    @Test
+    public void rotatedSegments() throws Exception {
+        addHandler(new BinaryLogHandler(mDirectory, SMALL_SEGMENT_SIZE, 1000));
+        logRotationLines();
+        mHandler.close();
+
+        assertTrue(listFiles(".plog").size() > 5);
+        assertRotationLines(decode(mDirectory.getPath()));
+    }
+
+    @Test
+    public void compressedSegments() throws Exception {
+        addHandler(new BinaryLogHandler(mDirectory, SMALL_SEGMENT_SIZE, 1000, true, 0));
+        logRotationLines();
+        mHandler.close();
+
+        // the closed segments are compressed in the background, the last one stays open
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (listFiles(".plog").size() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, listFiles(".plog").size());
+        assertTrue(listFiles(".plog.gz").size() > 5);
+        assertRotationLines(decode(mDirectory.getPath()));
+    }
+
+    @Test
+    public void export() throws Exception {
+        addHandler(new BinaryLogHandler(mDirectory, SMALL_SEGMENT_SIZE, 1000, true, 0));
+        logRotationLines();
+
+        final File exportFile = mFolder.newFile("export.gz");
+        final OutputStream outputStream = new FileOutputStream(exportFile);
+        try {
+            mHandler.export(outputStream);
+        } finally {
+            outputStream.close();
+        }
+        assertRotationLines(decode(exportFile.getPath()));
+    }
+
+    @Test
+    public void lineLongerThanASegmentIsCut() throws Exception {
+        addHandler(new BinaryLogHandler(mDirectory, SMALL_SEGMENT_SIZE, 10));
+        final String longTag = repeat('t', 1000);
+        final String longMessage = repeat('m', 1000);
+        PLog.i("Small", "before");
+        PLog.i(longTag, longMessage);
+        PLog.iF(longTag, "%s", longMessage);
+        PLog.i("Small", "after");
+        mHandler.close();
+
+        final List<String> lines = decode(mDirectory.getPath());
+        assertEquals(4, lines.size());
+        assertEquals("I/Small: before", lines.get(0));
+        for (int i = 1; i <= 2; i++) {
+            final String line = lines.get(i);
+            final int tagEnd = line.indexOf(": ");
+            assertTrue(longTag.startsWith(line.substring(2, tagEnd)));
+            assertTrue(longMessage.startsWith(line.substring(tagEnd + 2)));
+            assertTrue(line.length() < SMALL_SEGMENT_SIZE);
+        }
+        assertEquals("I/Small: after", lines.get(3));
+    }
+
+    private void addHandler(BinaryLogHandler handler) {
+        mHandler = handler;
+        mConfig = new PLog.Config.Builder().setLogLevel(PLog.LEVEL_VERBOSE).setLogHandler(handler).build();
+        PLog.addLogConfig(mConfig);
+    }
+
+    private static void logRotationLines() {
+        for (int i = 0; i < ROTATION_LINES; i++) {
+            PLog.iF("Rotation", "line %d of the rotation test", i);
+        }
+    }
+
+    private static void assertRotationLines(List<String> lines) {
+        assertEquals(ROTATION_LINES, lines.size());
+        for (int i = 0; i < ROTATION_LINES; i++) {
+            assertEquals("I/Rotation: line " + i + " of the rotation test", lines.get(i));
+        }
+    }
+
+    private List<File> listFiles(String suffix) {
+        final List<File> files = new ArrayList<>();
+        final File[] children = mDirectory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.getName().endsWith(suffix)) {
+                    files.add(child);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return the printed rows without the time
+     */
+    private static List<String> decode(String... args) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(outputStream, true, "UTF-8");
+        assertTrue(LogDecoder.decode(args, out));
+        final List<String> rows = new ArrayList<>();
+        for (String row : outputStream.toString("UTF-8").split("\n")) {
+            // "MM-dd HH:mm:ss.SSS " before the level of a line, the rows of a stack trace have none
+            rows.add(row.length() > 19 && row.charAt(2) == '-' && row.charAt(14) == '.' ? row.substring(19) : row);
+        }
+        return rows;
+    }
+
+    private static String repeat(char c, int count) {
+        final char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
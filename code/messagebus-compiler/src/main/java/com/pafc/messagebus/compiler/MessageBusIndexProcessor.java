@@ -0,0 +1,398 @@
+package com.pafc.messagebus.compiler;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * <pre>
+ * build time subscriber index for the MessageBus
+ * 1. find the public MessageHandle and MessageAsyncHandle methods of every class in the module
+ * 2. check the same rules as the MessageBus reflection scan, but fail the build instead of the register
+ * 3. write one ISubscriberIndex class, named by the "messageBusIndex" option, with one IMethodInvoker
+ *    per subscriber class which calls the methods directly instead of Method#invoke
+ * </pre>
+ * the classes which can not be referenced from the index (not public, abstract or nested in a not
+ * public class) are skipped, the MessageBus will scan them by reflection as before
+ *
+ * @author idiot2ger
+ */
+public class MessageBusIndexProcessor extends AbstractProcessor {
+
+    public static final String OPTION_INDEX = "messageBusIndex";
+
+    private static final String MESSAGE_HANDLE = "com.pafc.library.messagebus.MessageHandle";
+    private static final String MESSAGE_ASYNC_HANDLE = "com.pafc.library.messagebus.MessageAsyncHandle";
+
+    // the classes which declare annotated methods, keep the found order
+    private final Set<TypeElement> mSubscriberClasses = new LinkedHashSet<>();
+
+    private boolean mIndexWritten;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        final Set<String> types = new HashSet<>();
+        types.add(MESSAGE_HANDLE);
+        types.add(MESSAGE_ASYNC_HANDLE);
+        return types;
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        final Set<String> options = new HashSet<>();
+        options.add(OPTION_INDEX);
+        return options;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (annotations.isEmpty()) {
+            return false;
+        }
+
+        final String indexName = processingEnv.getOptions().get(OPTION_INDEX);
+        if (indexName == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                "no -A" + OPTION_INDEX + "=<class name> option, the MessageBus subscriber index is not generated");
+            return false;
+        }
+
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD) {
+                    mSubscriberClasses.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+
+        if (mIndexWritten) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "the subscribers generated by other processors can not be added to " + indexName);
+            return false;
+        }
+
+        writeIndex(indexName, collectSubscribers());
+        mIndexWritten = true;
+        return false;
+    }
+
+    /**
+     * walk the classes, and list the methods the MessageBus reflection scan would find with
+     * Class#getMethods, the inherited ones included
+     */
+    private Map<TypeElement, List<ExecutableElement>> collectSubscribers() {
+        final Map<TypeElement, List<ExecutableElement>> subscribers = new LinkedHashMap<>();
+        for (TypeElement cls : mSubscriberClasses) {
+            // check the declared methods of every class, even the ones which are not indexed
+            boolean isValid = true;
+            for (Element element : cls.getEnclosedElements()) {
+                if (element.getKind() == ElementKind.METHOD && !checkMethod((ExecutableElement) element)) {
+                    isValid = false;
+                }
+            }
+
+            if (!isValid || !isIndexable(cls)) {
+                continue;
+            }
+
+            final List<ExecutableElement> methods = new ArrayList<>();
+            for (Element element : processingEnv.getElementUtils().getAllMembers(cls)) {
+                if (element.getKind() == ElementKind.METHOD && element.getModifiers().contains(Modifier.PUBLIC)
+                    && getHandleAnnotation(element) != null) {
+                    final ExecutableElement method = (ExecutableElement) element;
+                    if (!isIndexable(method)) {
+                        methods.clear();
+                        break;
+                    }
+                    methods.add(method);
+                }
+            }
+
+            if (!methods.isEmpty()) {
+                subscribers.put(cls, methods);
+            }
+        }
+        return subscribers;
+    }
+
+    /**
+     * the same rules as MessageBus#cacheAnnotatedMethods
+     *
+     * @return false if the method is annotated but wrong
+     */
+    private boolean checkMethod(ExecutableElement method) {
+        final boolean isMH = findAnnotation(method, MESSAGE_HANDLE) != null;
+        final boolean isAMH = findAnnotation(method, MESSAGE_ASYNC_HANDLE) != null;
+        if (!isMH && !isAMH) {
+            return true;
+        }
+        if (isMH && isAMH) {
+            error(method, "cannot has MessageHandle and MessageAsyncHandle annotations at same time");
+            return false;
+        }
+        if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                "the method is not public, MessageBus will ignore it", method);
+            return true;
+        }
+        final List<? extends VariableElement> parameters = method.getParameters();
+        if (parameters.size() > 1) {
+            error(method, "MUST have less and equal than one parameters");
+            return false;
+        }
+        if (parameters.size() == 1 && parameters.get(0).asType().getKind().isPrimitive()) {
+            error(method, "the parameter MUST use the object type, such as: int will use Integer");
+            return false;
+        }
+        return true;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * the index refers the class by its class literal, so it must be a public concrete class
+     */
+    private boolean isIndexable(TypeElement cls) {
+        if (cls.getKind() != ElementKind.CLASS || cls.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        Element element = cls;
+        while (element instanceof TypeElement) {
+            final TypeElement type = (TypeElement) element;
+            if (!type.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+                && type != cls) {
+                return false;
+            }
+            if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            element = type.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * the parameter type is referred by its class literal too
+     */
+    private boolean isIndexable(ExecutableElement method) {
+        if (method.getParameters().isEmpty()) {
+            return true;
+        }
+        final TypeMirror type = processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType());
+        if (type.getKind() == TypeKind.ARRAY) {
+            return true;
+        }
+        return type.getKind() == TypeKind.DECLARED && isAccessible((TypeElement) ((DeclaredType) type).asElement());
+    }
+
+    private boolean isAccessible(TypeElement cls) {
+        Element element = cls;
+        while (element instanceof TypeElement) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private AnnotationMirror getHandleAnnotation(Element method) {
+        final AnnotationMirror mirror = findAnnotation(method, MESSAGE_HANDLE);
+        return mirror != null ? mirror : findAnnotation(method, MESSAGE_ASYNC_HANDLE);
+    }
+
+    private AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            final TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object getAnnotationValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+            processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private String typeName(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private void writeIndex(String indexName, Map<TypeElement, List<ExecutableElement>> subscribers) {
+        final int dot = indexName.lastIndexOf('.');
+        final String packageName = dot > 0 ? indexName.substring(0, dot) : null;
+        final String simpleName = indexName.substring(dot + 1);
+
+        final List<Element> originatingElements = new ArrayList<Element>(subscribers.keySet());
+        try {
+            final JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(indexName,
+                originatingElements.toArray(new Element[originatingElements.size()]));
+            final PrintWriter writer = new PrintWriter(sourceFile.openWriter());
+            try {
+                if (packageName != null) {
+                    writer.println("package " + packageName + ";");
+                    writer.println();
+                }
+                writer.println("import com.pafc.library.messagebus.IMethodInvoker;");
+                writer.println("import com.pafc.library.messagebus.ISubscriberIndex;");
+                writer.println("import com.pafc.library.messagebus.MessageAsyncHandle;");
+                writer.println("import com.pafc.library.messagebus.SubscriberInfo;");
+                writer.println();
+                writer.println("import java.util.HashMap;");
+                writer.println("import java.util.Map;");
+                writer.println();
+                writer.println("/**");
+                writer.println(" * generated by " + getClass().getName() + ", do not edit");
+                writer.println(" */");
+                writer.println("@SuppressWarnings(\"unchecked\")");
+                writer.println("public final class " + simpleName + " implements ISubscriberIndex {");
+                writer.println();
+                writer.println("    private static final Map<Class<?>, SubscriberInfo> SUBSCRIBERS = new HashMap<Class<?>, SubscriberInfo>();");
+                writer.println();
+                writer.println("    static {");
+                int invokerIndex = 0;
+                for (Map.Entry<TypeElement, List<ExecutableElement>> entry : subscribers.entrySet()) {
+                    writeSubscriber(writer, entry.getKey(), entry.getValue(), invokerIndex++);
+                }
+                writer.println("    }");
+                writer.println();
+                writer.println("    private static void putSubscriber(SubscriberInfo info) {");
+                writer.println("        SUBSCRIBERS.put(info.getSubscriberClass(), info);");
+                writer.println("    }");
+                writer.println();
+                writer.println("    @Override");
+                writer.println("    public SubscriberInfo getSubscriberInfo(Class<?> subscriberClass) {");
+                writer.println("        return SUBSCRIBERS.get(subscriberClass);");
+                writer.println("    }");
+                invokerIndex = 0;
+                for (Map.Entry<TypeElement, List<ExecutableElement>> entry : subscribers.entrySet()) {
+                    writeInvoker(writer, entry.getKey(), entry.getValue(), invokerIndex++);
+                }
+                writer.println("}");
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "can not write the subscriber index " + indexName + ": " + e);
+        }
+    }
+
+    /**
+     * the info is put under the subscriber class itself, not the declaring class of its handles, an inherited
+     * handle must not make a subclass overwrite the entry of its superclass
+     */
+    private void writeSubscriber(PrintWriter writer, TypeElement cls, List<ExecutableElement> methods,
+                                 int invokerIndex) {
+        writer.println("        putSubscriber(new SubscriberInfo(" + typeName(cls.asType()) + ".class, new SubscriberInfo.MethodInfo[]{");
+        for (int i = 0; i < methods.size(); i++) {
+            final ExecutableElement method = methods.get(i);
+            final boolean isAsync = findAnnotation(method, MESSAGE_ASYNC_HANDLE) != null;
+            final Object messageId = getAnnotationValue(getHandleAnnotation(method), "value");
+            final Object serialMode = isAsync ? getAnnotationValue(getHandleAnnotation(method), "serial") : null;
+            final String parameterCls = method.getParameters().isEmpty() ? "null"
+                : typeName(method.getParameters().get(0).asType()) + ".class";
+            writer.println("            new SubscriberInfo.MethodInfo(\"" + method.getSimpleName() + "\", " + messageId
+                + ", " + isAsync + ", MessageAsyncHandle.SerialMode." + (serialMode == null ? "NONE" : serialMode)
+                + ", " + parameterCls + ", new Invoker" + invokerIndex + "(" + i + ")),");
+        }
+        writer.println("        }));");
+    }
+
+    /**
+     * one invoker class per subscriber class, the method is picked by a switch, so the index does
+     * not load one class per method
+     */
+    private void writeInvoker(PrintWriter writer, TypeElement cls, List<ExecutableElement> methods, int invokerIndex) {
+        final String clsName = typeName(cls.asType());
+        final String invokerName = "Invoker" + invokerIndex;
+        writer.println();
+        writer.println("    private static final class " + invokerName + " implements IMethodInvoker {");
+        writer.println();
+        writer.println("        private final int mMethodIndex;");
+        writer.println();
+        writer.println("        " + invokerName + "(int methodIndex) {");
+        writer.println("            mMethodIndex = methodIndex;");
+        writer.println("        }");
+        writer.println();
+        writer.println("        @Override");
+        writer.println("        public void invoke(Object target, Object argument) {");
+        writer.println("            switch (mMethodIndex) {");
+        for (int i = 0; i < methods.size(); i++) {
+            final ExecutableElement method = methods.get(i);
+            final String receiver = method.getModifiers().contains(Modifier.STATIC) ? clsName
+                : "((" + clsName + ") target)";
+            final String argument;
+            if (method.getParameters().isEmpty()) {
+                argument = "";
+            } else {
+                final String parameterCls = typeName(method.getParameters().get(0).asType());
+                // no cast to Object, it would be a redundant cast warning in the generated index
+                argument = Object.class.getName().equals(parameterCls) ? "argument" : "(" + parameterCls + ") argument";
+            }
+            final String call = receiver + "." + method.getSimpleName() + "(" + argument + ");";
+            writer.println("                case " + i + ":");
+            if (method.getThrownTypes().isEmpty()) {
+                writer.println("                    " + call);
+            } else {
+                // the invoker declares no checked exception, rethrow them like ReflectMethodInvoker does
+                writer.println("                    try {");
+                writer.println("                        " + call);
+                writer.println("                    } catch (RuntimeException e) {");
+                writer.println("                        throw e;");
+                writer.println("                    } catch (Error e) {");
+                writer.println("                        throw e;");
+                writer.println("                    } catch (Throwable e) {");
+                writer.println("                        throw new RuntimeException(e);");
+                writer.println("                    }");
+            }
+            writer.println("                    break;");
+        }
+        writer.println("                default:");
+        writer.println("                    throw new IllegalStateException(\"unknown method index \" + mMethodIndex);");
+        writer.println("            }");
+        writer.println("        }");
+        writer.println("    }");
+    }
+}